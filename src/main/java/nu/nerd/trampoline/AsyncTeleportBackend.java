@@ -0,0 +1,134 @@
+package nu.nerd.trampoline;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+// ----------------------------------------------------------------------------
+/**
+ * Teleports entities without blocking the main thread on chunk loading, on
+ * servers that support it.
+ *
+ * Servers derived from Paper provide Entity.teleportAsync(Location) and/or
+ * World.getChunkAtAsync(int, int, boolean). These are looked up reflectively
+ * so that the plugin still builds and runs against the plain Spigot API. If a
+ * call fails, the teleport falls back to the blocking Entity.teleport().
+ */
+public class AsyncTeleportBackend extends TeleportBackend {
+    // ------------------------------------------------------------------------
+    /**
+     * Return a new instance if the server supports asynchronous chunk loading
+     * or teleportation.
+     *
+     * @return a new instance, or null if not supported.
+     */
+    public static AsyncTeleportBackend createIfSupported() {
+        Method teleportAsync = findMethod(Entity.class, "teleportAsync", Location.class);
+        Method getChunkAtAsync = findMethod(World.class, "getChunkAtAsync", int.class, int.class, boolean.class);
+        return (teleportAsync != null || getChunkAtAsync != null)
+            ? new AsyncTeleportBackend(teleportAsync, getChunkAtAsync)
+            : null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.TeleportBackend#getDescription()
+     */
+    @Override
+    public String getDescription() {
+        return (_teleportAsync != null) ? "asynchronous teleport"
+                                        : "asynchronous chunk load, synchronous teleport";
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.TeleportBackend#startTeleport(org.bukkit.entity.Entity,
+     *      org.bukkit.Location, java.util.function.Consumer)
+     */
+    @Override
+    protected void startTeleport(Entity entity, Location destination, Consumer<Boolean> completion) {
+        if (_teleportAsync != null) {
+            CompletableFuture<?> future = invoke(_teleportAsync, entity, destination);
+            if (future != null) {
+                future.whenComplete((result, ex) -> onMainThread(() -> {
+                    completion.accept(ex == null && Boolean.TRUE.equals(result));
+                }));
+                return;
+            }
+        } else {
+            CompletableFuture<?> future = invoke(_getChunkAtAsync, destination.getWorld(),
+                                                 destination.getBlockX() >> 4, destination.getBlockZ() >> 4, true);
+            if (future != null) {
+                future.whenComplete((chunk, ex) -> onMainThread(() -> {
+                    completion.accept(entity.isValid() && entity.teleport(destination));
+                }));
+                return;
+            }
+        }
+        completion.accept(entity.teleport(destination));
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Constructor.
+     *
+     * @param teleportAsync Entity.teleportAsync(Location), or null.
+     * @param getChunkAtAsync World.getChunkAtAsync(int, int, boolean), or null.
+     */
+    protected AsyncTeleportBackend(Method teleportAsync, Method getChunkAtAsync) {
+        _teleportAsync = teleportAsync;
+        _getChunkAtAsync = getChunkAtAsync;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the specified public method if it exists and returns a
+     * CompletableFuture.
+     *
+     * @param type the declaring type.
+     * @param name the method name.
+     * @param parameterTypes the parameter types.
+     * @return the method, or null if not found.
+     */
+    protected static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = type.getMethod(name, parameterTypes);
+            return CompletableFuture.class.isAssignableFrom(method.getReturnType()) ? method : null;
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Invoke a method that returns a CompletableFuture.
+     *
+     * @param method the method.
+     * @param target the object to invoke the method on.
+     * @param args the method arguments.
+     * @return the future, or null if the method could not be invoked.
+     */
+    protected static CompletableFuture<?> invoke(Method method, Object target, Object... args) {
+        try {
+            return (CompletableFuture<?>) method.invoke(target, args);
+        } catch (Exception ex) {
+            Trampoline.PLUGIN.getLogger().warning("Falling back to synchronous teleport: " + ex);
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Entity.teleportAsync(Location), or null if not available.
+     */
+    protected Method _teleportAsync;
+
+    /**
+     * World.getChunkAtAsync(int, int, boolean), or null if not available.
+     */
+    protected Method _getChunkAtAsync;
+} // class AsyncTeleportBackend
@@ -0,0 +1,244 @@
+package nu.nerd.trampoline;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitTask;
+
+// ----------------------------------------------------------------------------
+/**
+ * Measures the cost of a world's void fall handling on the live server,
+ * without moving any real player.
+ * 
+ * Each operation synthesises a fall at the teleport Y coordinate in a random
+ * loaded chunk of the world, runs the handler's placement logic (including
+ * sky destination sampling or the surface safe location search) and loads the
+ * destination chunk, as the teleport would. Destination chunks that have not
+ * been generated are counted rather than loaded, and in send-to-surface worlds,
+ * falls whose safe location search would leave loaded chunks are skipped, so
+ * that benchmarking does not load or generate terrain. Operations are spread over ticks,
+ * with a limited time budget per tick, so that the benchmark doesn't lag the
+ * server.
+ */
+public class Benchmark implements Runnable {
+    // ------------------------------------------------------------------------
+    /**
+     * Constructor.
+     * 
+     * @param sender the command sender who will receive the results.
+     * @param world the world where falls are synthesised.
+     * @param handler the handler of that world.
+     * @param count the number of operations, at most MAX_COUNT.
+     */
+    public Benchmark(CommandSender sender, World world, HandleSendTo handler, int count) {
+        _sender = sender;
+        _world = world;
+        _handler = handler;
+        _nanos = new long[count];
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Start running the benchmark on every tick until done.
+     */
+    public void start() {
+        _task = Bukkit.getScheduler().runTaskTimer(Trampoline.PLUGIN, this, 1, 1);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if the benchmark has finished.
+     * 
+     * @return true if the benchmark has finished.
+     */
+    public boolean isFinished() {
+        return _completed == _nanos.length;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Run as many operations as fit in this tick's time budget.
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        Logger logger = Trampoline.PLUGIN.getLogger();
+        ++_ticks;
+        long tickStart = System.nanoTime();
+        while (!isFinished() && System.nanoTime() - tickStart < TICK_BUDGET_NANOS) {
+            Location fall = syntheticFall();
+            if (_handler instanceof HandleSendToSurface && !((HandleSendToSurface) _handler).isSearchLoaded(fall)) {
+                // The safe location search would load or generate chunks.
+                ++_skipped;
+                ++_completed;
+                continue;
+            }
+            long loadsBefore = Trampoline.PLUGIN.getChunkLoadCount();
+            long start = System.nanoTime();
+            Location destination = _handler.findDestination(fall, null, logger);
+            if (destination != null) {
+                if (!destination.getWorld().loadChunk(destination.getBlockX() >> 4, destination.getBlockZ() >> 4, false)) {
+                    ++_ungenerated;
+                }
+            } else {
+                ++_failures;
+            }
+            _nanos[_measured++] = System.nanoTime() - start;
+            ++_completed;
+            _chunkLoads += Trampoline.PLUGIN.getChunkLoadCount() - loadsBefore;
+        }
+
+        if (isFinished()) {
+            _task.cancel();
+            report();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a synthetic fall location at the teleport Y coordinate, in a
+     * random loaded chunk of the world (or at the world border centre if no
+     * chunks are loaded).
+     * 
+     * @return the location.
+     */
+    protected Location syntheticFall() {
+        Chunk[] chunks = _world.getLoadedChunks();
+        int x, z;
+        if (chunks.length == 0) {
+            Location centre = _world.getWorldBorder().getCenter();
+            x = centre.getBlockX();
+            z = centre.getBlockZ();
+        } else {
+            Chunk chunk = chunks[Util.randomInt(chunks.length)];
+            x = (chunk.getX() << 4) + Util.randomInt(16);
+            z = (chunk.getZ() << 4) + Util.randomInt(16);
+        }
+        return new Location(_world, x + 0.5, _handler.getTeleportY(), z + 0.5);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Send the results to the command sender.
+     */
+    protected void report() {
+        long[] sorted = Arrays.copyOf(_nanos, _measured);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted) {
+            total += nanos;
+        }
+
+        int count = sorted.length;
+        _sender.sendMessage(ChatColor.DARK_AQUA + "Benchmark of " + _world.getName() + ": " + count +
+                            " operations over " + _ticks + " ticks, " + _failures + " without a destination, " +
+                            _ungenerated + " with a destination in an ungenerated chunk (not loaded), " +
+                            _skipped + " skipped because the search would leave loaded chunks.");
+        if (count == 0) {
+            return;
+        }
+        _sender.sendMessage(ChatColor.DARK_AQUA + String.format("Latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms.",
+                                                                percentile(sorted, 0.50) / 1e6,
+                                                                percentile(sorted, 0.90) / 1e6,
+                                                                percentile(sorted, 0.99) / 1e6,
+                                                                sorted[count - 1] / 1e6));
+        _sender.sendMessage(ChatColor.DARK_AQUA + String.format("Main thread: %.3f ms per operation, %.3f ms per tick.",
+                                                                total / 1e6 / count, total / 1e6 / _ticks));
+        _sender.sendMessage(ChatColor.DARK_AQUA + String.format("Chunk loads: %d (%.2f per operation).",
+                                                                _chunkLoads, (double) _chunkLoads / count));
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the specified percentile of a sorted, non-empty array (nearest
+     * rank method).
+     * 
+     * @param sorted the sorted values.
+     * @param fraction the percentile as a fraction in (0, 1].
+     * @return the percentile.
+     */
+    protected static long percentile(long[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Maximum number of operations in one benchmark.
+     */
+    public static final int MAX_COUNT = 100000;
+
+    /**
+     * Maximum time spent on operations in each tick, in nanoseconds.
+     */
+    protected static final long TICK_BUDGET_NANOS = 5000000;
+
+    /**
+     * The command sender who will receive the results.
+     */
+    protected CommandSender _sender;
+
+    /**
+     * The world where falls are synthesised.
+     */
+    protected World _world;
+
+    /**
+     * The handler of that world.
+     */
+    protected HandleSendTo _handler;
+
+    /**
+     * Duration of each operation in nanoseconds.
+     */
+    protected long[] _nanos;
+
+    /**
+     * Number of operations completed, including skipped ones.
+     */
+    protected int _completed;
+
+    /**
+     * Number of operations measured; the number of valid entries in _nanos.
+     */
+    protected int _measured;
+
+    /**
+     * Number of synthetic falls skipped because the surface safe location
+     * search would have examined chunks that were not loaded.
+     */
+    protected int _skipped;
+
+    /**
+     * Number of operations where the handler found no destination.
+     */
+    protected int _failures;
+
+    /**
+     * Number of operations whose destination chunk was not generated, and so
+     * was not loaded.
+     */
+    protected int _ungenerated;
+
+    /**
+     * Number of chunks loaded during operations.
+     */
+    protected long _chunkLoads;
+
+    /**
+     * Number of ticks the benchmark has run in.
+     */
+    protected int _ticks;
+
+    /**
+     * The scheduled task running the benchmark.
+     */
+    protected BukkitTask _task;
+} // class Benchmark
@@ -0,0 +1,108 @@
+package nu.nerd.trampoline;
+
+import org.bukkit.Location;
+
+// ----------------------------------------------------------------------------
+/**
+ * Immutable identifier of a chunk: the world name and chunk coordinates.
+ */
+public class ChunkLocation {
+    // ------------------------------------------------------------------------
+    /**
+     * Constructor.
+     * 
+     * @param worldName the name of the world.
+     * @param x the chunk X coordinate.
+     * @param z the chunk Z coordinate.
+     */
+    public ChunkLocation(String worldName, int x, int z) {
+        _worldName = worldName;
+        _x = x;
+        _z = z;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the chunk containing the specified location.
+     * 
+     * @param loc the location.
+     * @return the chunk containing the specified location.
+     */
+    public static ChunkLocation of(Location loc) {
+        return new ChunkLocation(loc.getWorld().getName(), loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the name of the world.
+     * 
+     * @return the name of the world.
+     */
+    public String getWorldName() {
+        return _worldName;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the chunk X coordinate.
+     * 
+     * @return the chunk X coordinate.
+     */
+    public int getX() {
+        return _x;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the chunk Z coordinate.
+     * 
+     * @return the chunk Z coordinate.
+     */
+    public int getZ() {
+        return _z;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable description of the chunk, giving the block
+     * coordinates of its centre.
+     * 
+     * @return the description.
+     */
+    public String getDescription() {
+        return _worldName + " chunk (" + _x + "," + _z + ") near (" + ((_x << 4) + 8) + "," + ((_z << 4) + 8) + ")";
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ChunkLocation)) {
+            return false;
+        }
+        ChunkLocation other = (ChunkLocation) obj;
+        return _x == other._x && _z == other._z && _worldName.equals(other._worldName);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return (_worldName.hashCode() * 31 + _x) * 31 + _z;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * The name of the world.
+     */
+    protected final String _worldName;
+
+    /**
+     * The chunk X and Z coordinates.
+     */
+    protected final int _x, _z;
+} // class ChunkLocation
@@ -13,22 +13,22 @@ import org.bukkit.configuration.file.FileConfiguration;
  */
 public class Configuration {
     /**
-     * Period in ticks between checks of player locations.
+     * Default period in ticks between checks of player locations.
      */
     public int CHECK_TICKS;
 
     /**
-     * Y coordinate at or below which potion effects are applied.
+     * Default Y coordinate at or below which potion effects are applied.
      */
     public int EFFECT_Y;
 
     /**
-     * Y coordinate at or below which the player will teleport.
+     * Default Y coordinate at or below which the player will teleport.
      */
     public int TELEPORT_Y;
 
     /**
-     * Y coordinate at or below which to teleport non-player entities.
+     * Default Y coordinate at or below which to teleport non-player entities.
      */
     public int ENTITY_TELEPORT_Y;
 
@@ -38,6 +38,59 @@ public class Configuration {
      */
     public int WORLD_BORDER_BUFFER;
 
+    /**
+     * If true, use non-blocking chunk loading and teleportation when the
+     * server supports them.
+     */
+    public boolean ASYNC_TELEPORT;
+
+    /**
+     * Performs teleports on behalf of the handlers.
+     */
+    public TeleportBackend TELEPORT_BACKEND;
+
+    /**
+     * Maximum number of chunks for which void falls are counted.
+     */
+    public int HOTSPOT_CAPACITY;
+
+    /**
+     * Period in minutes between exports of void fall hotspots; 0 to disable.
+     */
+    public int HOTSPOT_EXPORT_MINUTES;
+
+    /**
+     * If true, run the shadow engine alongside the handlers.
+     */
+    public boolean SHADOW_ENABLED;
+
+    /**
+     * Name of the engine run in shadow mode.
+     */
+    public String SHADOW_ENGINE;
+
+    /**
+     * Shadow destinations further than this many blocks from the handler's
+     * destination are logged; negative to disable.
+     */
+    public double SHADOW_LOG_DISTANCE;
+
+    /**
+     * Maximum number of landing chunks kept loaded; 0 to disable.
+     */
+    public int RESIDENT_BUDGET;
+
+    /**
+     * Radius, in chunks, of the area kept loaded around each fail-safe
+     * location.
+     */
+    public int RESIDENT_FAIL_SAFE_RADIUS;
+
+    /**
+     * Number of sky landings in a chunk before it is kept loaded.
+     */
+    public int RESIDENT_ADMIT_LANDINGS;
+
     /**
      * Map from world name to handler that sends the player somewhere.
      */
@@ -65,6 +118,18 @@ public class Configuration {
         TELEPORT_Y = config.getInt("teleport-y");
         ENTITY_TELEPORT_Y = config.getInt("entity-teleport-y");
         WORLD_BORDER_BUFFER = config.getInt("world-border-buffer");
+        ASYNC_TELEPORT = config.getBoolean("async-teleport", true);
+        TELEPORT_BACKEND = TeleportBackend.create(ASYNC_TELEPORT, TELEPORT_BACKEND, logger);
+        HOTSPOT_CAPACITY = Math.max(1, config.getInt("hotspots.capacity", 128));
+        HOTSPOT_EXPORT_MINUTES = Math.max(0, config.getInt("hotspots.export-minutes", 30));
+        Trampoline.HOTSPOTS.setCapacity(HOTSPOT_CAPACITY);
+        SHADOW_ENABLED = config.getBoolean("shadow.enabled", false);
+        SHADOW_ENGINE = config.getString("shadow.engine", "predictive");
+        SHADOW_LOG_DISTANCE = config.getDouble("shadow.log-distance", 32);
+        Trampoline.SHADOW.configure(SHADOW_ENABLED, SHADOW_ENGINE, SHADOW_LOG_DISTANCE, logger);
+        RESIDENT_BUDGET = Math.max(0, config.getInt("resident-chunks.budget", 64));
+        RESIDENT_FAIL_SAFE_RADIUS = Math.max(0, config.getInt("resident-chunks.fail-safe-radius", 1));
+        RESIDENT_ADMIT_LANDINGS = Math.max(1, config.getInt("resident-chunks.admit-landings", 2));
 
         SEND_TO_HANDLERS.clear();
         ConfigurationSection exitSection = config.getConfigurationSection("exit");
@@ -95,6 +160,7 @@ public class Configuration {
                 DESTINATION_WORLDS.put(worldName, destinationWorld);
             }
         }
+        Trampoline.RESIDENT.configure(RESIDENT_BUDGET, RESIDENT_FAIL_SAFE_RADIUS, RESIDENT_ADMIT_LANDINGS, logger);
 
         if (logged) {
             logger.info("CHECK_TICKS: " + CHECK_TICKS);
@@ -102,9 +168,19 @@ public class Configuration {
             logger.info("TELEPORT_Y: " + TELEPORT_Y);
             logger.info("ENTITY_TELEPORT_Y: " + ENTITY_TELEPORT_Y);
             logger.info("WORLD_BORDER_BUFFER: " + WORLD_BORDER_BUFFER);
+            logger.info("ASYNC_TELEPORT: " + ASYNC_TELEPORT);
+            logger.info("HOTSPOT_CAPACITY: " + HOTSPOT_CAPACITY);
+            logger.info("HOTSPOT_EXPORT_MINUTES: " + HOTSPOT_EXPORT_MINUTES);
+            logger.info("SHADOW_ENABLED: " + SHADOW_ENABLED);
+            logger.info("SHADOW_ENGINE: " + SHADOW_ENGINE);
+            logger.info("SHADOW_LOG_DISTANCE: " + SHADOW_LOG_DISTANCE);
+            logger.info("RESIDENT_BUDGET: " + RESIDENT_BUDGET);
+            logger.info("RESIDENT_FAIL_SAFE_RADIUS: " + RESIDENT_FAIL_SAFE_RADIUS);
+            logger.info("RESIDENT_ADMIT_LANDINGS: " + RESIDENT_ADMIT_LANDINGS);
 
             for (Map.Entry<String, HandleSendTo> sendToHandler : SEND_TO_HANDLERS.entrySet()) {
-                logger.info("Leaving " + sendToHandler.getKey() + ", " + sendToHandler.getValue().getDescription());
+                logger.info("Leaving " + sendToHandler.getKey() + ", " + sendToHandler.getValue().getPollingDescription() +
+                            ", " + sendToHandler.getValue().getDescription());
             }
 
             for (Map.Entry<String, DestinationWorld> destination : DESTINATION_WORLDS.entrySet()) {
@@ -0,0 +1,163 @@
+package nu.nerd.trampoline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+
+// ----------------------------------------------------------------------------
+/**
+ * Chooses one of several weighted {@link SkyDestination}s for each landing.
+ *
+ * The configured weight of each destination is scaled down by the number of
+ * recent landings there and by the fraction of its chunks that are already
+ * loaded, so that the chunk loading and entity ticking cost of arrivals is
+ * spread over several worlds and areas.
+ */
+public class DestinationRouter {
+    // ------------------------------------------------------------------------
+    /**
+     * Load the destinations and routing settings from a send-to-sky section.
+     *
+     * The legacy single destination form (world and y directly in the sky
+     * section) is accepted as a single destination of weight 1.
+     *
+     * @param skySection the sky configuration section.
+     * @param logger used to log errors.
+     * @return true if at least one destination was loaded.
+     */
+    public boolean load(ConfigurationSection skySection, Logger logger) {
+        _destinations.clear();
+        List<Map<?, ?>> destinations = skySection.getMapList("destinations");
+        if (destinations != null && !destinations.isEmpty()) {
+            for (Map<?, ?> map : destinations) {
+                // createSection() converts nested maps (region) into sections.
+                ConfigurationSection destinationConfig = new MemoryConfiguration().createSection("destination", map);
+                SkyDestination destination = new SkyDestination();
+                if (destination.load(destinationConfig, logger)) {
+                    _destinations.add(destination);
+                } else {
+                    logger.severe(skySection.getParent().getName() + " could not load a sky destination.");
+                }
+            }
+        } else if (skySection.contains("world")) {
+            SkyDestination destination = new SkyDestination();
+            if (destination.load(skySection, logger)) {
+                _destinations.add(destination);
+            }
+        } else {
+            logger.severe(skySection.getParent().getName() + " sends to unspecified world.");
+        }
+
+        ConfigurationSection routing = skySection.getConfigurationSection("routing");
+        _halfLifeMillis = 1000L * (routing != null ? routing.getInt("landing-half-life", 300) : 300);
+        _crowdingPenalty = (routing != null ? routing.getDouble("crowding-penalty", 4.0) : 4.0);
+        return !_destinations.isEmpty();
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable description of the destinations.
+     *
+     * @return a human-readable description of the destinations.
+     */
+    public String getDescription() {
+        return _destinations.stream().map(SkyDestination::getDescription).collect(Collectors.joining("; "));
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the destinations.
+     *
+     * @return the destinations.
+     */
+    public List<SkyDestination> getDestinations() {
+        return _destinations;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Choose a destination for a landing.
+     *
+     * Destinations whose world is not loaded, whose world has no entry
+     * settings, or whose sub-region lies outside the world border are skipped.
+     *
+     * @return the chosen destination, or null if none are available.
+     */
+    public SkyDestination choose() {
+        long now = System.currentTimeMillis();
+        double[] scores = new double[_destinations.size()];
+        double total = 0;
+        for (int i = 0; i < scores.length; ++i) {
+            SkyDestination destination = _destinations.get(i);
+            World world = destination.getWorld();
+            if (world == null || !Trampoline.CONFIG.DESTINATION_WORLDS.containsKey(destination.getWorldName())) {
+                continue;
+            }
+            int[] bounds = destination.getBounds(world);
+            if (bounds == null) {
+                continue;
+            }
+
+            double recent = destination.getRecentLandings(now, _halfLifeMillis);
+            double loaded = destination.getLoadedFraction(world, bounds);
+            scores[i] = destination.getWeight() / ((1 + recent) * (1 + _crowdingPenalty * loaded));
+            total += scores[i];
+        }
+
+        if (total <= 0) {
+            return null;
+        }
+        double pick = Util.randomDouble() * total;
+        for (int i = 0; i < scores.length; ++i) {
+            if (scores[i] > 0) {
+                pick -= scores[i];
+                if (pick < 0) {
+                    return _destinations.get(i);
+                }
+            }
+        }
+
+        // Rounding error: return the last eligible destination.
+        for (int i = scores.length - 1; i >= 0; --i) {
+            if (scores[i] > 0) {
+                return _destinations.get(i);
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Record a landing at the specified destination.
+     *
+     * @param destination the destination.
+     * @param loc the landing location.
+     */
+    public void recordLanding(SkyDestination destination, Location loc) {
+        destination.recordLanding(System.currentTimeMillis(), _halfLifeMillis, loc);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * The destinations.
+     */
+    protected List<SkyDestination> _destinations = new ArrayList<>();
+
+    /**
+     * The half life of a landing's contribution to the recent landing count,
+     * in milliseconds.
+     */
+    protected long _halfLifeMillis;
+
+    /**
+     * Factor by which a fully loaded destination's weight is penalised.
+     */
+    protected double _crowdingPenalty;
+} // class DestinationRouter
@@ -0,0 +1,61 @@
+package nu.nerd.trampoline;
+
+import org.bukkit.Bukkit;
+
+// ----------------------------------------------------------------------------
+/**
+ * A Runnable task that teleports entities of configured types that have
+ * fallen into the void in a world that sends to the sky of other worlds.
+ * 
+ * The task runs on its own period, independent of the checks of player
+ * locations in the same world, and stops rescheduling itself when the
+ * configuration is reloaded and its handler is replaced.
+ */
+public class EntityTask implements Runnable {
+    // ------------------------------------------------------------------------
+    /**
+     * Constructor.
+     * 
+     * @param worldName the name of the world whose entities are checked.
+     * @param handler the handler for void falls in that world.
+     */
+    public EntityTask(String worldName, HandleSendToSky handler) {
+        _worldName = worldName;
+        _handler = handler;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Schedule this task to run (again) in the future.
+     */
+    public void schedule() {
+        Bukkit.getScheduler().scheduleSyncDelayedTask(Trampoline.PLUGIN, this, _handler.getEntityCheckTicks());
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        if (Trampoline.CONFIG.SEND_TO_HANDLERS.get(_worldName) != _handler) {
+            return;
+        }
+
+        if (_handler.isEnabled()) {
+            _handler.teleportEntities(Trampoline.PLUGIN.getLogger());
+        }
+        schedule();
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * The name of the world whose entities are checked.
+     */
+    protected String _worldName;
+
+    /**
+     * The handler for void falls in that world.
+     */
+    protected HandleSendToSky _handler;
+} // class EntityTask
@@ -0,0 +1,408 @@
+package nu.nerd.trampoline;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+// ----------------------------------------------------------------------------
+/**
+ * A compact bitmap of the chunks of a world that have already been generated.
+ *
+ * The index is initially built, off the main thread, from the location tables
+ * in the headers of the world's region files: a chunk is considered generated
+ * if its location entry is non-zero. Thereafter, it is kept up to date by
+ * marking chunks as they are loaded.
+ *
+ * Each region is stored as 1024 bits (16 longs), indexed the same way as the
+ * region file header: bit (x & 31) + 32 * (z & 31).
+ *
+ * The number of generated chunks of each region within a set of sampling
+ * bounds is cached, since the bounds only change with the world border or
+ * the configuration, so that sampling doesn't recount every region.
+ */
+public class GeneratedChunkIndex {
+    // ------------------------------------------------------------------------
+    /**
+     * Cumulative counts of the generated chunks of each region that lie within
+     * one set of chunk coordinate bounds.
+     */
+    protected static class BoundsCounts {
+        /**
+         * The bounds as {minChunkX, minChunkZ, maxChunkX, maxChunkZ}.
+         */
+        int[] bounds;
+
+        /**
+         * Keys of the regions with generated chunks in bounds.
+         */
+        long[] keys;
+
+        /**
+         * cumulative[i] is the number of generated chunks in bounds in
+         * regions keys[0] to keys[i], inclusive.
+         */
+        int[] cumulative;
+    } // class BoundsCounts
+
+    // ------------------------------------------------------------------------
+    /**
+     * Constructor.
+     *
+     * @param worldName the name of the indexed world.
+     */
+    public GeneratedChunkIndex(String worldName) {
+        _worldName = worldName;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Start building the index from the world's region files, asynchronously.
+     *
+     * @param world the world.
+     * @param logger used to log the outcome.
+     */
+    public void build(World world, Logger logger) {
+        File regionFolder = getRegionFolder(world);
+        Bukkit.getScheduler().runTaskAsynchronously(Trampoline.PLUGIN, () -> {
+            long start = System.nanoTime();
+            Map<Long, long[]> scanned = new HashMap<>();
+            File[] files = regionFolder.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Matcher matcher = REGION_FILE_NAME.matcher(file.getName());
+                    if (matcher.matches()) {
+                        int regionX = Integer.parseInt(matcher.group(1));
+                        int regionZ = Integer.parseInt(matcher.group(2));
+                        try {
+                            long[] bits = readRegionHeader(file);
+                            if (bits != null) {
+                                scanned.put(Util.chunkKey(regionX, regionZ), bits);
+                            }
+                        } catch (IOException ex) {
+                            logger.warning("Unable to read region file header " + file + ": " + ex.getMessage());
+                        }
+                    }
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+            Bukkit.getScheduler().runTask(Trampoline.PLUGIN, () -> {
+                // Merge rather than replace, to keep chunks loaded meanwhile.
+                for (Map.Entry<Long, long[]> entry : scanned.entrySet()) {
+                    long[] bits = _regions.get(entry.getKey());
+                    if (bits == null) {
+                        _regions.put(entry.getKey(), entry.getValue());
+                    } else {
+                        for (int i = 0; i < REGION_LONGS; ++i) {
+                            bits[i] |= entry.getValue()[i];
+                        }
+                    }
+                }
+                _ready = true;
+                _boundsCounts.clear();
+                logger.info("Indexed " + getGeneratedCount() + " generated chunks in " + scanned.size() +
+                            " regions of " + _worldName + " in " + elapsedMillis + " ms.");
+            });
+        });
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if the index has been built from the region files.
+     *
+     * @return true if the index has been built from the region files.
+     */
+    public boolean isReady() {
+        return _ready;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Mark the specified chunk as generated.
+     *
+     * @param chunkX the chunk X coordinate.
+     * @param chunkZ the chunk Z coordinate.
+     */
+    public void markGenerated(int chunkX, int chunkZ) {
+        long key = Util.chunkKey(chunkX >> 5, chunkZ >> 5);
+        long[] bits = _regions.get(key);
+        if (bits == null) {
+            bits = new long[REGION_LONGS];
+            _regions.put(key, bits);
+        }
+        int bit = (chunkX & 31) + 32 * (chunkZ & 31);
+        long mask = 1L << (bit & 63);
+        if ((bits[bit >> 6] & mask) == 0) {
+            bits[bit >> 6] |= mask;
+            invalidateBoundsCounts(chunkX, chunkZ);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if the specified chunk is known to have been generated.
+     *
+     * @param chunkX the chunk X coordinate.
+     * @param chunkZ the chunk Z coordinate.
+     * @return true if the specified chunk is known to have been generated.
+     */
+    public boolean isGenerated(int chunkX, int chunkZ) {
+        long[] bits = _regions.get(Util.chunkKey(chunkX >> 5, chunkZ >> 5));
+        if (bits == null) {
+            return false;
+        }
+        int bit = (chunkX & 31) + 32 * (chunkZ & 31);
+        return (bits[bit >> 6] & (1L << (bit & 63))) != 0;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the total number of generated chunks in the index.
+     *
+     * @return the total number of generated chunks in the index.
+     */
+    public int getGeneratedCount() {
+        int count = 0;
+        for (long[] bits : _regions.values()) {
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Select a generated chunk uniformly at random from within the specified
+     * chunk coordinate bounds.
+     *
+     * @param minChunkX the minimum chunk X (inclusive).
+     * @param minChunkZ the minimum chunk Z (inclusive).
+     * @param maxChunkX the maximum chunk X (inclusive).
+     * @param maxChunkZ the maximum chunk Z (inclusive).
+     * @return the chunk coordinates as {x, z}, or null if there are no
+     *         generated chunks within the bounds.
+     */
+    public int[] sampleChunk(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        BoundsCounts counts = getBoundsCounts(minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+        int regions = counts.keys.length;
+        if (regions == 0) {
+            return null;
+        }
+
+        // Find the first region whose cumulative count exceeds pick.
+        int pick = Util.randomInt(counts.cumulative[regions - 1]);
+        int index = Arrays.binarySearch(counts.cumulative, pick);
+        index = (index >= 0) ? index + 1 : -index - 1;
+        if (index > 0) {
+            pick -= counts.cumulative[index - 1];
+        }
+
+        long key = counts.keys[index];
+        long[] bits = _regions.get(key);
+        int regionX = Util.chunkKeyX(key);
+        int regionZ = Util.chunkKeyZ(key);
+        for (int bit = 0; bit < 1024; ++bit) {
+            if ((bits[bit >> 6] & (1L << (bit & 63))) != 0) {
+                int chunkX = (regionX << 5) + (bit & 31);
+                int chunkZ = (regionZ << 5) + (bit >> 5);
+                if (chunkX >= minChunkX && chunkX <= maxChunkX &&
+                    chunkZ >= minChunkZ && chunkZ <= maxChunkZ && pick-- == 0) {
+                    return new int[] { chunkX, chunkZ };
+                }
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the cached counts of generated chunks per region within the
+     * specified bounds, computing them if necessary.
+     *
+     * @param minChunkX the minimum chunk X (inclusive).
+     * @param minChunkZ the minimum chunk Z (inclusive).
+     * @param maxChunkX the maximum chunk X (inclusive).
+     * @param maxChunkZ the maximum chunk Z (inclusive).
+     * @return the counts.
+     */
+    protected BoundsCounts getBoundsCounts(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        List<Integer> boundsKey = Arrays.asList(minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+        BoundsCounts counts = _boundsCounts.get(boundsKey);
+        if (counts != null) {
+            return counts;
+        }
+
+        List<Long> keys = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Long, long[]> entry : _regions.entrySet()) {
+            int count = countInBounds(entry.getKey(), entry.getValue(), minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+            if (count > 0) {
+                total += count;
+                keys.add(entry.getKey());
+                cumulative.add(total);
+            }
+        }
+
+        counts = new BoundsCounts();
+        counts.bounds = new int[] { minChunkX, minChunkZ, maxChunkX, maxChunkZ };
+        counts.keys = keys.stream().mapToLong(Long::longValue).toArray();
+        counts.cumulative = cumulative.stream().mapToInt(Integer::intValue).toArray();
+        if (_boundsCounts.size() >= MAX_BOUNDS_COUNTS) {
+            // The bounds are changing, e.g. with a moving world border.
+            _boundsCounts.clear();
+        }
+        _boundsCounts.put(boundsKey, counts);
+        return counts;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Discard the cached counts for all bounds containing the specified chunk.
+     *
+     * @param chunkX the chunk X coordinate.
+     * @param chunkZ the chunk Z coordinate.
+     */
+    protected void invalidateBoundsCounts(int chunkX, int chunkZ) {
+        Iterator<BoundsCounts> it = _boundsCounts.values().iterator();
+        while (it.hasNext()) {
+            int[] bounds = it.next().bounds;
+            if (chunkX >= bounds[0] && chunkZ >= bounds[1] && chunkX <= bounds[2] && chunkZ <= bounds[3]) {
+                it.remove();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the number of generated chunks of a region that lie within the
+     * specified chunk coordinate bounds.
+     *
+     * @param key the region key.
+     * @param bits the region bitmap.
+     * @param minChunkX the minimum chunk X (inclusive).
+     * @param minChunkZ the minimum chunk Z (inclusive).
+     * @param maxChunkX the maximum chunk X (inclusive).
+     * @param maxChunkZ the maximum chunk Z (inclusive).
+     * @return the number of generated chunks in bounds.
+     */
+    protected static int countInBounds(long key, long[] bits,
+                                       int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        int baseX = Util.chunkKeyX(key) << 5;
+        int baseZ = Util.chunkKeyZ(key) << 5;
+        int fromX = Math.max(minChunkX - baseX, 0);
+        int toX = Math.min(maxChunkX - baseX, 31);
+        int fromZ = Math.max(minChunkZ - baseZ, 0);
+        int toZ = Math.min(maxChunkZ - baseZ, 31);
+        if (fromX > toX || fromZ > toZ) {
+            return 0;
+        }
+
+        // Each long holds two 32-chunk rows of constant Z.
+        long rowMask = (toX == 31 ? 0xFFFFFFFFL : (1L << (toX + 1)) - 1) & ~((1L << fromX) - 1);
+        int count = 0;
+        for (int z = fromZ; z <= toZ; ++z) {
+            long row = bits[z >> 1] >>> ((z & 1) * 32);
+            count += Long.bitCount(row & rowMask);
+        }
+        return count;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Read the location table in the header of a region file.
+     *
+     * @param file the region file.
+     * @return the bitmap of chunks present in the region, or null if the file
+     *         is too short to contain a header.
+     * @throws IOException if the file cannot be read.
+     */
+    protected static long[] readRegionHeader(File file) throws IOException {
+        if (file.length() < 4096) {
+            return null;
+        }
+        long[] bits = new long[REGION_LONGS];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            byte[] header = new byte[4096];
+            in.readFully(header);
+            for (int bit = 0; bit < 1024; ++bit) {
+                int i = 4 * bit;
+                if ((header[i] | header[i + 1] | header[i + 2] | header[i + 3]) != 0) {
+                    bits[bit >> 6] |= 1L << (bit & 63);
+                }
+            }
+        }
+        return bits;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the folder containing the region files of the specified world.
+     *
+     * @param world the world.
+     * @return the region folder.
+     */
+    protected static File getRegionFolder(World world) {
+        File worldFolder = world.getWorldFolder();
+        switch (world.getEnvironment()) {
+        case NETHER:
+            return new File(new File(worldFolder, "DIM-1"), "region");
+        case THE_END:
+            return new File(new File(worldFolder, "DIM1"), "region");
+        default:
+            return new File(worldFolder, "region");
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Number of longs in the bitmap of a single region.
+     */
+    protected static final int REGION_LONGS = 1024 / 64;
+
+    /**
+     * Maximum number of sets of bounds whose counts are cached.
+     */
+    protected static final int MAX_BOUNDS_COUNTS = 16;
+
+    /**
+     * Pattern matching region file names, capturing the region X and Z.
+     */
+    protected static final Pattern REGION_FILE_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+
+    /**
+     * The name of the indexed world.
+     */
+    protected String _worldName;
+
+    /**
+     * Map from region key (see {@link Util#chunkKey(int, int)}) to bitmap of
+     * generated chunks in that region.
+     */
+    protected Map<Long, long[]> _regions = new HashMap<>();
+
+    /**
+     * Map from sampling bounds, as a list of {minChunkX, minChunkZ, maxChunkX,
+     * maxChunkZ}, to cached counts of generated chunks in those bounds.
+     */
+    protected Map<List<Integer>, BoundsCounts> _boundsCounts = new HashMap<>();
+
+    /**
+     * True once the index has been built from the region files.
+     */
+    protected boolean _ready;
+} // class GeneratedChunkIndex
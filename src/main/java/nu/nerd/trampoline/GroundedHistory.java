@@ -0,0 +1,115 @@
+package nu.nerd.trampoline;
+
+// ----------------------------------------------------------------------------
+/**
+ * A fixed-size ring buffer of the block coordinates where a player was last
+ * standing on the ground, most recent first.
+ * 
+ * Coordinates are stored in primitive arrays, so recording a position does
+ * not allocate.
+ */
+public class GroundedHistory {
+    // ------------------------------------------------------------------------
+    /**
+     * Constructor.
+     * 
+     * @param capacity the maximum number of positions retained; at least 1.
+     */
+    public GroundedHistory(int capacity) {
+        _x = new int[capacity];
+        _y = new int[capacity];
+        _z = new int[capacity];
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Record a position, unless it is the same as the most recent one.
+     * 
+     * @param x the block X coordinate.
+     * @param y the block Y coordinate.
+     * @param z the block Z coordinate.
+     */
+    public void record(int x, int y, int z) {
+        if (_size != 0) {
+            int latest = index(0);
+            if (_x[latest] == x && _y[latest] == y && _z[latest] == z) {
+                return;
+            }
+        }
+        _head = (_head + 1) % _x.length;
+        _x[_head] = x;
+        _y[_head] = y;
+        _z[_head] = z;
+        _size = Math.min(_size + 1, _x.length);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the number of positions retained.
+     * 
+     * @return the number of positions retained.
+     */
+    public int size() {
+        return _size;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the block X coordinate of the specified position.
+     * 
+     * @param age the position, where 0 is the most recent.
+     * @return the block X coordinate.
+     */
+    public int getX(int age) {
+        return _x[index(age)];
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the block Y coordinate of the specified position.
+     * 
+     * @param age the position, where 0 is the most recent.
+     * @return the block Y coordinate.
+     */
+    public int getY(int age) {
+        return _y[index(age)];
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the block Z coordinate of the specified position.
+     * 
+     * @param age the position, where 0 is the most recent.
+     * @return the block Z coordinate.
+     */
+    public int getZ(int age) {
+        return _z[index(age)];
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the array index of the specified position.
+     * 
+     * @param age the position, where 0 is the most recent.
+     * @return the array index.
+     */
+    protected int index(int age) {
+        return (_head - age + _x.length) % _x.length;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Block coordinates of the retained positions.
+     */
+    protected int[] _x, _y, _z;
+
+    /**
+     * Array index of the most recent position.
+     */
+    protected int _head;
+
+    /**
+     * Number of positions retained.
+     */
+    protected int _size;
+} // class GroundedHistory
@@ -2,6 +2,7 @@ package nu.nerd.trampoline;
 
 import java.util.logging.Logger;
 
+import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
@@ -29,9 +30,59 @@ public abstract class HandleSendTo {
      */
     public boolean load(ConfigurationSection section, Logger logger) {
         _enabled = section.getBoolean("enabled");
+
+        // Polling settings default to the global settings.
+        Configuration config = Trampoline.CONFIG;
+        _checkTicks = Math.max(1, section.getInt("check-ticks", config.CHECK_TICKS));
+        _entityCheckTicks = Math.max(1, section.getInt("entity-check-ticks", _checkTicks));
+        _effectY = section.getInt("effect-y", config.EFFECT_Y);
+        _teleportY = section.getInt("teleport-y", config.TELEPORT_Y);
+        _entityTeleportY = section.getInt("entity-teleport-y", config.ENTITY_TELEPORT_Y);
         return true;
     }
 
+    // ------------------------------------------------------------------------
+    /**
+     * Return the period in ticks between checks of player locations.
+     * 
+     * @return the period in ticks between checks of player locations.
+     */
+    public int getCheckTicks() {
+        return _checkTicks;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the period in ticks between checks of entity locations.
+     * 
+     * @return the period in ticks between checks of entity locations.
+     */
+    public int getEntityCheckTicks() {
+        return _entityCheckTicks;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the Y coordinate at or below which the player will teleport.
+     * 
+     * @return the Y coordinate at or below which the player will teleport.
+     */
+    public int getTeleportY() {
+        return _teleportY;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable description of the polling settings of this
+     * handler.
+     * 
+     * @return the description as a string.
+     */
+    public String getPollingDescription() {
+        return "check every " + _checkTicks + " ticks (entities " + _entityCheckTicks + "), effects Y" +
+               _effectY + ", teleport Y" + _teleportY + " (entities Y" + _entityTeleportY + ")";
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Handle player movement.
@@ -41,6 +92,31 @@ public abstract class HandleSendTo {
      */
     public abstract void handle(Player player, Logger logger);
 
+    // ------------------------------------------------------------------------
+    /**
+     * Discard any state kept about the specified player.
+     * 
+     * @param player the player.
+     */
+    public void forget(Player player) {
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the location that a player who fell into the void at the
+     * specified location would be sent to, without moving them or updating
+     * any statistics.
+     * 
+     * Chunks may be loaded as a side effect.
+     * 
+     * @param loc the location of the fall.
+     * @param player the player who fell, or null for a synthetic fall (e.g. a
+     *        benchmark) or a fall by an entity that is not a player.
+     * @param logger used for logging.
+     * @return the destination, or null if there is none.
+     */
+    public abstract Location findDestination(Location loc, Player player, Logger logger);
+
     // ------------------------------------------------------------------------
     /**
      * Return a human-readable description of the actions performed by this
@@ -56,4 +132,29 @@ public abstract class HandleSendTo {
      */
     protected boolean _enabled;
 
+    /**
+     * Period in ticks between checks of player locations in this world.
+     */
+    protected int _checkTicks;
+
+    /**
+     * Period in ticks between checks of entity locations in this world.
+     */
+    protected int _entityCheckTicks;
+
+    /**
+     * Y coordinate at or below which potion effects are applied.
+     */
+    protected int _effectY;
+
+    /**
+     * Y coordinate at or below which the player will teleport.
+     */
+    protected int _teleportY;
+
+    /**
+     * Y coordinate at or below which to teleport non-player entities.
+     */
+    protected int _entityTeleportY;
+
 } // class HandleSendTo
\ No newline at end of file
@@ -10,7 +10,6 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.WorldBorder;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
@@ -35,13 +34,12 @@ public class HandleSendToSky extends HandleSendTo {
 
         ConfigurationSection skySection = section.getConfigurationSection("sky");
         if (skySection != null) {
-            _destinationWorldName = skySection.getString("world");
-            if (_destinationWorldName == null) {
-                logger.severe(section.getName() + " sends to unspecified world.");
-            }
-            _destinationY = skySection.getInt("y");
-            if (_destinationY <= 0) {
-                logger.severe(section.getName() + " sends to invalid Y coordinate, " + _destinationY + ".");
+            _loaded = _router.load(skySection, logger);
+            _generatedOnly = skySection.getBoolean("generated-only", false);
+            _warmRatio = Math.max(0.0, Math.min(1.0, skySection.getDouble("warm-ratio", 0.0)));
+            if (_generatedOnly) {
+                // Start indexing now so that the index is ready for the first fall.
+                _router.getDestinations().forEach(d -> Trampoline.PLUGIN.getGeneratedChunkIndex(d.getWorldName()));
             }
             _messages = new ArrayList<>(skySection.getStringList("messages"));
             try {
@@ -58,7 +56,7 @@ public class HandleSendToSky extends HandleSendTo {
                 }
             }
         }
-        return _destinationWorldName != null && _destinationY > 0;
+        return _loaded;
     }
 
     // --------------------------------------------------------------------------
@@ -68,16 +66,16 @@ public class HandleSendToSky extends HandleSendTo {
     @Override
     public void handle(Player player, Logger logger) {
         Location loc = player.getLocation();
-        if (loc.getY() <= Trampoline.CONFIG.EFFECT_Y) {
+        if (loc.getY() <= _effectY) {
             // Re-adding the same effect for lower Y is a no-op.
             _potionEffects.stream().forEach(player::addPotionEffect);
         }
 
-        if (loc.getY() <= Trampoline.CONFIG.TELEPORT_Y) {
-            teleportEntity(player, logger);
-
-            String message = _messages.get(Util.randomInt(_messages.size())).replace("&p", player.getName());
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
+        if (loc.getY() <= _teleportY && !Trampoline.CONFIG.TELEPORT_BACKEND.isPending(player)) {
+            teleportEntity(player, logger, () -> {
+                String message = _messages.get(Util.randomInt(_messages.size())).replace("&p", player.getName());
+                player.sendMessage(ChatColor.translateAlternateColorCodes('&', message));
+            });
         }
     }
 
@@ -94,10 +92,14 @@ public class HandleSendToSky extends HandleSendTo {
         }
 
         World world = Bukkit.getWorld(_sourceWorldName);
+        if (world == null) {
+            return;
+        }
         for (Entity entity : world.getEntities()) {
             if (_teleportedMobs.contains(entity.getType()) &&
-                entity.getLocation().getY() <= Trampoline.CONFIG.ENTITY_TELEPORT_Y) {
-                teleportEntity(entity, logger);
+                entity.getLocation().getY() <= _entityTeleportY &&
+                !Trampoline.CONFIG.TELEPORT_BACKEND.isPending(entity)) {
+                teleportEntity(entity, logger, null);
             }
         }
     }
@@ -109,39 +111,121 @@ public class HandleSendToSky extends HandleSendTo {
      * 
      * @param entity the entity to teleport.
      * @param logger for logging to console.
+     * @param arrived if not null, run after the entity has been successfully
+     *        teleported.
      */
-    protected void teleportEntity(Entity entity, Logger logger) {
+    protected void teleportEntity(Entity entity, Logger logger, Runnable arrived) {
         Location loc = entity.getLocation();
-        DestinationWorld destinationWorld = Trampoline.CONFIG.DESTINATION_WORLDS.get(_destinationWorldName);
-        World world = Bukkit.getWorld(_destinationWorldName);
-        if (destinationWorld == null || world == null) {
+        long start = System.nanoTime();
+        SkyDestination target = _router.choose();
+        if (target == null) {
             logger.severe("Can't send " + entity.getType() + " " + entity.getName() +
-                          " to non-existent world " + _destinationWorldName + "!");
+                          " to any of the non-existent destinations: " + _router.getDescription() + "!");
             return;
         }
 
-        WorldBorder border = world.getWorldBorder();
-        int radius = (int) border.getSize() / 2 - Trampoline.CONFIG.WORLD_BORDER_BUFFER;
-        Location centre = border.getCenter();
-        int centreX = centre.getBlockX();
-        int centreZ = centre.getBlockZ();
-
-        // Have a few tries to honour all the exclusions.
-        // Don't care too much if we can't.
-        Location destination = null;
-        for (int i = 0; i < 10; ++i) {
-            int x = Util.randomInt(centreX - radius, centreX + radius);
-            int z = Util.randomInt(centreZ - radius, centreZ + radius);
-            destination = Util.centredXZ(new Location(world, x, _destinationY, z));
-            if (destinationWorld.allowsTeleportTo(destination)) {
-                break;
+        Location destination = chooseLocation(target, true);
+        Trampoline.SHADOW.comparePlacement(this, loc, (entity instanceof Player) ? (Player) entity : null,
+                                           destination, System.nanoTime() - start, logger);
+        ++_landings;
+        if (destination.getWorld().isChunkLoaded(destination.getBlockX() >> 4, destination.getBlockZ() >> 4)) {
+            ++_warmHits;
+        }
+        _router.recordLanding(target, destination);
+
+        Trampoline.CONFIG.TELEPORT_BACKEND.teleport(entity, destination, success -> {
+            if (success) {
+                // Count the fall once; failed attempts are retried next check.
+                Trampoline.HOTSPOTS.record(loc);
+                // Only now is the chunk loaded, so admission won't load it.
+                Trampoline.RESIDENT.recordLanding(destination, true);
+                logger.info(entity.getName() + " (" + entity.getUniqueId().toString() + ") teleported from " +
+                            Util.formatLocation(loc) + " to " +
+                            Util.formatLocation(destination) + ".");
+                if (arrived != null) {
+                    arrived.run();
+                }
+            } else {
+                logger.warning(entity.getName() + " (" + entity.getUniqueId().toString() + ") could not be teleported from " +
+                               Util.formatLocation(loc) + " to " +
+                               Util.formatLocation(destination) + ".");
             }
+        });
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.HandleSendTo#findDestination(org.bukkit.Location,
+     *      org.bukkit.entity.Player, java.util.logging.Logger)
+     */
+    @Override
+    public Location findDestination(Location loc, Player player, Logger logger) {
+        SkyDestination target = _router.choose();
+        return (target != null) ? chooseLocation(target, false) : null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Choose a landing location at the specified destination.
+     * 
+     * With probability _warmRatio, a location in a chunk that is already
+     * loaded or near a recent landing is preferred. Otherwise, or if there is
+     * no suitable warm location, the location is chosen at random, from
+     * generated chunks only if so configured.
+     * 
+     * @param target the destination chosen by the router.
+     * @param counted if true, update the warm sampling statistics.
+     * @return the landing location.
+     */
+    protected Location chooseLocation(SkyDestination target, boolean counted) {
+        World world = target.getWorld();
+        DestinationWorld destinationWorld = Trampoline.CONFIG.DESTINATION_WORLDS.get(target.getWorldName());
+        int[] bounds = target.getBounds(world);
+        GeneratedChunkIndex generated = _generatedOnly ? Trampoline.PLUGIN.getGeneratedChunkIndex(target.getWorldName())
+                                                       : null;
+        if (_warmRatio > 0 && Util.randomDouble() < _warmRatio) {
+            // Before the index is ready, it holds only chunks loaded since
+            // startup, so warm neighbours are limited to those.
+            Location destination = target.sampleWarm(world, destinationWorld, bounds, generated);
+            if (counted) {
+                ++_warmAttempts;
+                if (destination != null) {
+                    ++_warmPicks;
+                }
+            }
+            if (destination != null) {
+                return destination;
+            }
+        }
+
+        if (generated != null && !generated.isReady()) {
+            generated = null;
         }
+        return target.sample(world, destinationWorld, bounds, generated);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable summary of landing point selection since the
+     * configuration was loaded.
+     * 
+     * @return the summary.
+     */
+    public String getSamplingStats() {
+        return _landings + " landings, " + formatRate(_warmHits, _landings) + " warm hits (chunk already loaded); " +
+               _warmAttempts + " warm attempts, " + formatRate(_warmPicks, _warmAttempts) + " found a warm location";
+    }
 
-        entity.teleport(destination);
-        logger.info(entity.getName() + " (" + entity.getUniqueId().toString() + ") teleported from " +
-                    Util.formatLocation(loc) + " to " +
-                    Util.formatLocation(destination) + ".");
+    // ------------------------------------------------------------------------
+    /**
+     * Format a count and its percentage of a total.
+     * 
+     * @param count the count.
+     * @param total the total.
+     * @return the formatted count and percentage.
+     */
+    protected static String formatRate(long count, long total) {
+        return count + String.format(" (%.1f%%)", total == 0 ? 0.0 : 100.0 * count / total);
     }
 
     // ------------------------------------------------------------------------
@@ -161,7 +245,9 @@ public class HandleSendToSky extends HandleSendTo {
                                               : _messages.size() + ", messages:\n" +
                                                 _messages.stream().map(b -> "    " + b).collect(Collectors.joining("\n"));
         String teleportedEntities = _teleportedMobs.stream().map(EntityType::name).collect(Collectors.joining(","));
-        return "send to sky, Y" + _destinationY + ", along with [" + teleportedEntities +
+        return "send to sky, " + _router.getDescription() +
+               (_generatedOnly ? ", generated chunks only" : "") +
+               (_warmRatio > 0 ? ", warm ratio " + _warmRatio : "") + ", along with [" + teleportedEntities +
                "], " + potionEffects + ", " + messages;
     }
 
@@ -172,14 +258,46 @@ public class HandleSendToSky extends HandleSendTo {
     protected String _sourceWorldName;
 
     /**
-     * Name of the world to send the player to.
+     * Chooses among the destinations that the player can be sent to.
+     */
+    protected DestinationRouter _router = new DestinationRouter();
+
+    /**
+     * True if at least one destination was loaded.
+     */
+    protected boolean _loaded;
+
+    /**
+     * If true, landing points are restricted to chunks that have already been
+     * generated, so that falls do not cause world generation.
+     */
+    protected boolean _generatedOnly;
+
+    /**
+     * Fraction of landings for which a location in an already-loaded chunk,
+     * or near a recent landing, is preferred.
+     */
+    protected double _warmRatio;
+
+    /**
+     * Number of landings since the configuration was loaded.
+     */
+    protected long _landings;
+
+    /**
+     * Number of landings in a chunk that was already loaded.
+     */
+    protected long _warmHits;
+
+    /**
+     * Number of landings for which a warm location was sought.
      */
-    protected String _destinationWorldName;
+    protected long _warmAttempts;
 
     /**
-     * Destination Y coordinate to send the player to.
+     * Number of warm attempts that found a suitable warm location.
      */
-    protected int _destinationY;
+    protected long _warmPicks;
 
     /**
      * List of messages, one of which is randomly selected for broadcast when
@@ -1,5 +1,8 @@
 package nu.nerd.trampoline;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 import org.bukkit.ChatColor;
@@ -31,6 +34,7 @@ public class HandleSendToSurface extends HandleSendTo {
             _safeScanStep = Math.max(1, safeScan.getInt("step"));
             _safeScanTries = safeScan.getInt("tries");
         }
+        _historySize = Math.max(0, section.getInt("surface.history-size", 8));
         return true;
     }
 
@@ -41,34 +45,85 @@ public class HandleSendToSurface extends HandleSendTo {
     @Override
     public void handle(Player player, Logger logger) {
         Location loc = player.getLocation();
-        if (loc.getY() <= Trampoline.CONFIG.TELEPORT_Y) {
-            Location safeLoc = findSafeLocation(loc, logger);
+        if (loc.getY() <= _teleportY && !Trampoline.CONFIG.TELEPORT_BACKEND.isPending(player)) {
+            long start = System.nanoTime();
+            Location destination = findDestination(loc, player, logger);
+            Trampoline.SHADOW.comparePlacement(this, loc, player, destination, System.nanoTime() - start, logger);
+            Trampoline.RESIDENT.recordLanding(destination, false);
 
-            // Don't dump the player at the bottom of the ocean either!
-            while (safeLoc.getBlock().getType() == Material.WATER) {
-                safeLoc.add(0, 1, 0);
-            }
-            Location destination = Util.centredXZ(safeLoc);
-
-            // Bounce the player upwards slightly.
-            player.setVelocity(new Vector(0, 0.1, 0));
-            player.setFallDistance(0);
-            player.teleport(destination);
-            logger.info(player.getName() + " teleported from " +
-                        Util.formatLocation(loc) + " to " +
-                        Util.formatLocation(destination) + ".");
-
-            player.sendMessage(ChatColor.DARK_AQUA + "Well, that was awkward!");
-            player.sendMessage(ChatColor.DARK_AQUA + "You shouldn't be able to fall out of this world.");
-            player.sendMessage(ChatColor.DARK_AQUA + "Let us put you here instead!");
-
-            // If the player fell out of the world because of ModMode+Spectator
-            if (player.getGameMode() == GameMode.SPECTATOR) {
-                player.sendMessage(ChatColor.DARK_AQUA + "Looks like spectator mode might be the issue. Let's fix that too.");
-                player.setGameMode(GameMode.SURVIVAL);
-                logger.info(player.getName() + " had their game mode reset from spectator to survival.");
+            Trampoline.CONFIG.TELEPORT_BACKEND.teleport(player, destination, success -> {
+                if (!success) {
+                    logger.warning(player.getName() + " could not be teleported from " +
+                                   Util.formatLocation(loc) + " to " +
+                                   Util.formatLocation(destination) + ".");
+                    return;
+                }
+
+                // Count the fall once; failed attempts are retried next check.
+                Trampoline.HOTSPOTS.record(loc);
+
+                // Bounce the player upwards slightly.
+                player.setVelocity(new Vector(0, 0.1, 0));
+                player.setFallDistance(0);
+                logger.info(player.getName() + " teleported from " +
+                            Util.formatLocation(loc) + " to " +
+                            Util.formatLocation(destination) + ".");
+
+                player.sendMessage(ChatColor.DARK_AQUA + "Well, that was awkward!");
+                player.sendMessage(ChatColor.DARK_AQUA + "You shouldn't be able to fall out of this world.");
+                player.sendMessage(ChatColor.DARK_AQUA + "Let us put you here instead!");
+
+                // If the player fell out of the world because of ModMode+Spectator
+                if (player.getGameMode() == GameMode.SPECTATOR) {
+                    player.sendMessage(ChatColor.DARK_AQUA + "Looks like spectator mode might be the issue. Let's fix that too.");
+                    player.setGameMode(GameMode.SURVIVAL);
+                    logger.info(player.getName() + " had their game mode reset from spectator to survival.");
+                }
+            });
+        } else if (_historySize > 0 && player.isOnGround() && !player.isFlying()) {
+            GroundedHistory history = _groundedHistory.get(player.getUniqueId());
+            if (history == null) {
+                history = new GroundedHistory(_historySize);
+                _groundedHistory.put(player.getUniqueId(), history);
             }
+            // On slabs, soul sand, farmland, etc. the player's Y is inside the
+            // ground block, so the feet block is the one above.
+            history.record(loc.getBlockX(), (int) Math.ceil(loc.getY()), loc.getBlockZ());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.HandleSendTo#forget(org.bukkit.entity.Player)
+     */
+    @Override
+    public void forget(Player player) {
+        _groundedHistory.remove(player.getUniqueId());
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * The player is returned to the most recent position where they stood on
+     * the ground, if that is still standable. Otherwise, a safe location is
+     * sought in the column of the fall.
+     * 
+     * @see nu.nerd.trampoline.HandleSendTo#findDestination(org.bukkit.Location,
+     *      org.bukkit.entity.Player, java.util.logging.Logger)
+     */
+    @Override
+    public Location findDestination(Location loc, Player player, Logger logger) {
+        Location grounded = (player != null) ? lastStandableLocation(player) : null;
+        if (grounded != null) {
+            return grounded;
+        }
+
+        Location safeLoc = findSafeLocation(loc.clone(), logger);
+
+        // Don't dump the player at the bottom of the ocean either!
+        while (safeLoc.getBlock().getType() == Material.WATER) {
+            safeLoc.add(0, 1, 0);
         }
+        return Util.centredXZ(safeLoc);
     }
 
     // ------------------------------------------------------------------------
@@ -80,6 +135,44 @@ public class HandleSendToSurface extends HandleSendTo {
         return "send to surface";
     }
 
+    // ------------------------------------------------------------------------
+    /**
+     * Return the most recent position where the player stood on the ground in
+     * this world that is still standable.
+     * 
+     * Each position costs a constant number of block lookups: the block below
+     * must not be passable, and the feet and head blocks must be passable and
+     * not lava. Positions in unloaded chunks are skipped.
+     * 
+     * @param player the player.
+     * @return the position centred in its block, or null if there is none.
+     */
+    protected Location lastStandableLocation(Player player) {
+        GroundedHistory history = _groundedHistory.get(player.getUniqueId());
+        if (history == null) {
+            return null;
+        }
+
+        World world = player.getWorld();
+        for (int age = 0; age < history.size(); ++age) {
+            int x = history.getX(age);
+            int y = history.getY(age);
+            int z = history.getZ(age);
+            if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+                continue;
+            }
+            Block feet = world.getBlockAt(x, y, z);
+            Block head = feet.getRelative(0, 1, 0);
+            Block ground = feet.getRelative(0, -1, 0);
+            if (!ground.isPassable() &&
+                feet.isPassable() && feet.getType() != Material.LAVA &&
+                head.isPassable() && head.getType() != Material.LAVA) {
+                return Util.centredXZ(feet.getLocation());
+            }
+        }
+        return null;
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Return a safe location to put the player, based on their starting
@@ -90,19 +183,9 @@ public class HandleSendToSurface extends HandleSendTo {
      * @return a safe location to stand.
      */
     protected Location findSafeLocation(Location loc, Logger logger) {
-        // Set up to step towards (0,0) along whichever axis
-        // loc is furthest from (0,0).
-        int dx = 0, dz = 0;
         int retries = _safeScanEnabled ? _safeScanTries : 0;
-        if (retries > 0) {
-            if (Math.abs(loc.getBlockX()) > Math.abs(loc.getBlockZ())) {
-                dx = -_safeScanStep * Util.sign(loc.getBlockX());
-                dz = 0;
-            } else {
-                dx = 0;
-                dz = -_safeScanStep * Util.sign(loc.getBlockZ());
-            }
-        }
+        int[] step = scanStep(loc);
+        int dx = step[0], dz = step[1];
 
         for (;;) {
             Block ground = Util.highestUnpassableBlock(loc);
@@ -127,6 +210,52 @@ public class HandleSendToSurface extends HandleSendTo {
         }
     }
 
+    // ------------------------------------------------------------------------
+    /**
+     * Return the offset between successive columns of a safe location scan
+     * from the specified location.
+     * 
+     * The scan steps towards (0,0) along whichever axis loc is furthest from
+     * (0,0).
+     * 
+     * @param loc the location where the scan starts.
+     * @return the X and Z offsets, as {dx, dz}.
+     */
+    protected int[] scanStep(Location loc) {
+        if (Math.abs(loc.getBlockX()) > Math.abs(loc.getBlockZ())) {
+            return new int[] { -_safeScanStep * Util.sign(loc.getBlockX()), 0 };
+        } else {
+            return new int[] { 0, -_safeScanStep * Util.sign(loc.getBlockZ()) };
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if a safe location search from the specified location can
+     * only examine loaded chunks: every column the scan may visit, and the
+     * fail safe location, are in chunks that are already loaded.
+     * 
+     * @param loc the location where the search starts.
+     * @return true if the search will not load chunks.
+     */
+    public boolean isSearchLoaded(Location loc) {
+        World world = loc.getWorld();
+        int tries = _safeScanEnabled ? _safeScanTries : 0;
+        int[] step = scanStep(loc);
+        for (int i = 0; i <= tries; ++i) {
+            int x = loc.getBlockX() + i * step[0];
+            int z = loc.getBlockZ() + i * step[1];
+            if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+                return false;
+            }
+        }
+
+        DestinationWorld destinationWorld = Trampoline.CONFIG.DESTINATION_WORLDS.get(world.getName());
+        Location failSafe = (destinationWorld != null) ? destinationWorld.getFailSafeLocation()
+                                                       : new Location(world, 0, 0, 0);
+        return world.isChunkLoaded(failSafe.getBlockX() >> 4, failSafe.getBlockZ() >> 4);
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Return the fail safe location in the specified world, defaulting to atop
@@ -161,4 +290,16 @@ public class HandleSendToSurface extends HandleSendTo {
      * Number of times to try finding a safe spot by scanning.
      */
     protected int _safeScanTries;
+
+    /**
+     * Number of recent grounded positions retained for each player; 0 to
+     * disable recovery to the last grounded position.
+     */
+    protected int _historySize;
+
+    /**
+     * Map from player UUID to recent positions where the player stood on the
+     * ground in this world.
+     */
+    protected Map<UUID, GroundedHistory> _groundedHistory = new HashMap<>();
 } // class HandleSendToSurface
\ No newline at end of file
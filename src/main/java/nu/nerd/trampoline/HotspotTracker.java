@@ -0,0 +1,221 @@
+package nu.nerd.trampoline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+
+// ----------------------------------------------------------------------------
+/**
+ * Counts the chunks where players and entities fall into the void, in fixed
+ * memory.
+ * 
+ * This is the Space-Saving heavy hitters algorithm: at most a fixed number of
+ * chunks are counted. When a fall occurs in an uncounted chunk and the table
+ * is full, the chunk with the lowest count is replaced by the new one, which
+ * inherits that count as its maximum over-estimate (error). Any chunk with
+ * more than (total falls / capacity) falls is guaranteed to be in the table.
+ */
+public class HotspotTracker {
+    // ------------------------------------------------------------------------
+    /**
+     * A counted chunk.
+     */
+    public static class Hotspot {
+        // --------------------------------------------------------------------
+        /**
+         * Constructor.
+         * 
+         * @param chunk the chunk.
+         * @param count the initial count.
+         * @param error the maximum over-estimate of the count.
+         */
+        public Hotspot(ChunkLocation chunk, long count, long error) {
+            _chunk = chunk;
+            _count = count;
+            _error = error;
+        }
+
+        // --------------------------------------------------------------------
+        /**
+         * Return the chunk.
+         * 
+         * @return the chunk.
+         */
+        public ChunkLocation getChunk() {
+            return _chunk;
+        }
+
+        // --------------------------------------------------------------------
+        /**
+         * Return the (possibly over-estimated) number of falls in the chunk.
+         * 
+         * @return the (possibly over-estimated) number of falls in the chunk.
+         */
+        public long getCount() {
+            return _count;
+        }
+
+        // --------------------------------------------------------------------
+        /**
+         * Return the maximum amount by which the count over-estimates the
+         * number of falls.
+         * 
+         * @return the maximum over-estimate.
+         */
+        public long getError() {
+            return _error;
+        }
+
+        // --------------------------------------------------------------------
+        /**
+         * The chunk.
+         */
+        protected final ChunkLocation _chunk;
+
+        /**
+         * The (possibly over-estimated) number of falls in the chunk.
+         */
+        protected long _count;
+
+        /**
+         * The maximum amount by which _count over-estimates the falls.
+         */
+        protected long _error;
+    } // class Hotspot
+
+    // ------------------------------------------------------------------------
+    /**
+     * Set the maximum number of chunks counted, discarding the lowest counts
+     * if the table is larger than that.
+     * 
+     * @param capacity the capacity; at least 1.
+     */
+    public void setCapacity(int capacity) {
+        _capacity = Math.max(1, capacity);
+        while (_hotspots.size() > _capacity) {
+            _hotspots.remove(findMinimum()._chunk);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Record a fall into the void.
+     * 
+     * @param loc the location the fall was detected at.
+     * @return the guaranteed count for the chunk, including this fall, i.e.
+     *         the estimated count less its maximum over-estimate.
+     */
+    public long record(Location loc) {
+        ++_total;
+        ChunkLocation chunk = ChunkLocation.of(loc);
+        Hotspot hotspot = _hotspots.get(chunk);
+        if (hotspot != null) {
+            ++hotspot._count;
+        } else if (_hotspots.size() < _capacity) {
+            hotspot = new Hotspot(chunk, 1, 0);
+            _hotspots.put(chunk, hotspot);
+        } else {
+            Hotspot minimum = findMinimum();
+            _hotspots.remove(minimum._chunk);
+            hotspot = new Hotspot(chunk, minimum._count + 1, minimum._count);
+            _hotspots.put(chunk, hotspot);
+        }
+        return hotspot._count - hotspot._error;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the total number of falls recorded.
+     * 
+     * @return the total number of falls recorded.
+     */
+    public long getTotal() {
+        return _total;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return copies of the hotspots with the highest counts, highest first.
+     * 
+     * @param limit the maximum number of hotspots to return.
+     * @return the hotspots.
+     */
+    public List<Hotspot> getTop(int limit) {
+        List<Hotspot> top = new ArrayList<>();
+        for (Hotspot hotspot : _hotspots.values()) {
+            top.add(new Hotspot(hotspot._chunk, hotspot._count, hotspot._error));
+        }
+        top.sort((a, b) -> Long.compare(b._count, a._count));
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Write all hotspots to a CSV file, asynchronously.
+     * 
+     * @param file the file.
+     * @param logger used to log errors.
+     */
+    public void export(File file, Logger logger) {
+        List<Hotspot> hotspots = getTop(_capacity);
+        long total = _total;
+        Bukkit.getScheduler().runTaskAsynchronously(Trampoline.PLUGIN, () -> {
+            file.getParentFile().mkdirs();
+            try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+                out.println("# " + total + " falls recorded");
+                out.println("world,chunk_x,chunk_z,block_x,block_z,count,error");
+                for (Hotspot hotspot : hotspots) {
+                    ChunkLocation chunk = hotspot.getChunk();
+                    out.println(chunk.getWorldName() + "," + chunk.getX() + "," + chunk.getZ() + "," +
+                                ((chunk.getX() << 4) + 8) + "," + ((chunk.getZ() << 4) + 8) + "," +
+                                hotspot.getCount() + "," + hotspot.getError());
+                }
+            } catch (IOException ex) {
+                logger.warning("Unable to export void fall hotspots to " + file + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the hotspot with the lowest count.
+     * 
+     * The table is small, so a linear scan is cheaper than maintaining an
+     * ordered structure on every fall.
+     * 
+     * @return the hotspot with the lowest count; the table must not be empty.
+     */
+    protected Hotspot findMinimum() {
+        Hotspot minimum = null;
+        for (Hotspot hotspot : _hotspots.values()) {
+            if (minimum == null || hotspot._count < minimum._count) {
+                minimum = hotspot;
+            }
+        }
+        return minimum;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Maximum number of chunks counted.
+     */
+    protected int _capacity = 128;
+
+    /**
+     * Total number of falls recorded.
+     */
+    protected long _total;
+
+    /**
+     * Map from chunk to its hotspot entry.
+     */
+    protected Map<ChunkLocation, Hotspot> _hotspots = new HashMap<>();
+} // class HotspotTracker
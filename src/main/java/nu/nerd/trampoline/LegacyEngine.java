@@ -0,0 +1,47 @@
+package nu.nerd.trampoline;
+
+import java.util.logging.Logger;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+// ----------------------------------------------------------------------------
+/**
+ * The engine implemented by the handlers themselves: a fall is detected when
+ * the player is at or below the teleport Y coordinate, and the handler's own
+ * placement logic chooses the destination.
+ * 
+ * Running this engine in shadow mode measures the noise in the comparison
+ * (e.g. due to random sky destinations).
+ */
+public class LegacyEngine extends VoidEngine {
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.VoidEngine#getName()
+     */
+    @Override
+    public String getName() {
+        return "legacy";
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.VoidEngine#detects(nu.nerd.trampoline.HandleSendTo,
+     *      org.bukkit.entity.Player)
+     */
+    @Override
+    public boolean detects(HandleSendTo handler, Player player) {
+        return player.getLocation().getY() <= handler.getTeleportY();
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.VoidEngine#place(nu.nerd.trampoline.HandleSendTo,
+     *      org.bukkit.Location, org.bukkit.entity.Player,
+     *      java.util.logging.Logger)
+     */
+    @Override
+    public Location place(HandleSendTo handler, Location loc, Player player, Logger logger) {
+        return handler.findDestination(loc, player, logger);
+    }
+} // class LegacyEngine
@@ -3,25 +3,37 @@ package nu.nerd.trampoline;
 import java.util.logging.Logger;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 // ----------------------------------------------------------------------------
 /**
- * A Runnable task that checks player locations for falls into the void and
- * processes them according to the configuration.
+ * A Runnable task that checks the locations of players in one world for falls
+ * into the void and processes them according to that world's handler.
  * 
- * The task also teleports entities of configured types in worlds that send to
- * the sky of other worlds.
+ * Each handler has its own task, scheduled according to the handler's check
+ * period. The task stops rescheduling itself when the configuration is
+ * reloaded and its handler is replaced.
  */
 public class MovementTask implements Runnable {
+    // ------------------------------------------------------------------------
+    /**
+     * Constructor.
+     * 
+     * @param worldName the name of the world whose players are checked.
+     * @param handler the handler for void falls in that world.
+     */
+    public MovementTask(String worldName, HandleSendTo handler) {
+        _worldName = worldName;
+        _handler = handler;
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Schedule this task to run (again) in the future.
      */
     public void schedule() {
-        Bukkit.getScheduler().scheduleSyncDelayedTask(Trampoline.PLUGIN, this, Trampoline.CONFIG.CHECK_TICKS);
+        Bukkit.getScheduler().scheduleSyncDelayedTask(Trampoline.PLUGIN, this, _handler.getCheckTicks());
     }
 
     // ------------------------------------------------------------------------
@@ -30,23 +42,29 @@ public class MovementTask implements Runnable {
      */
     @Override
     public void run() {
-        Logger logger = Trampoline.PLUGIN.getLogger();
-
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            Location loc = player.getLocation();
-            World world = loc.getWorld();
-            HandleSendTo handler = Trampoline.CONFIG.SEND_TO_HANDLERS.get(world.getName());
-            if (handler != null && handler.isEnabled()) {
-                handler.handle(player, logger);
-            }
+        if (Trampoline.CONFIG.SEND_TO_HANDLERS.get(_worldName) != _handler) {
+            return;
         }
 
-        for (HandleSendTo sendTo : Trampoline.CONFIG.SEND_TO_HANDLERS.values()) {
-            if (sendTo.isEnabled() && sendTo instanceof HandleSendToSky) {
-                HandleSendToSky sendToSky = (HandleSendToSky) sendTo;
-                sendToSky.teleportEntities(logger);
+        Logger logger = Trampoline.PLUGIN.getLogger();
+        World world = Bukkit.getWorld(_worldName);
+        if (world != null && _handler.isEnabled()) {
+            for (Player player : world.getPlayers()) {
+                Trampoline.SHADOW.compareDetection(_handler, player);
+                _handler.handle(player, logger);
             }
         }
         schedule();
     }
-} // class MovementTask
\ No newline at end of file
+
+    // ------------------------------------------------------------------------
+    /**
+     * The name of the world whose players are checked.
+     */
+    protected String _worldName;
+
+    /**
+     * The handler for void falls in that world.
+     */
+    protected HandleSendTo _handler;
+} // class MovementTask
@@ -0,0 +1,127 @@
+package nu.nerd.trampoline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+
+// ----------------------------------------------------------------------------
+/**
+ * A candidate engine that detects falls one check early and places players
+ * on the nearest safe column in any direction.
+ * 
+ * Detection extrapolates the player's Y coordinate from the previous check:
+ * if the player would be at or below the teleport Y coordinate by the next
+ * check, the fall is detected now.
+ * 
+ * For send-to-surface worlds, placement examines the 8 compass points at
+ * increasing distances from the fall, up to the handler's safe scan range,
+ * rather than stepping towards the world origin. Columns in chunks that are
+ * not loaded are skipped, so that shadow placement never loads or generates
+ * chunks. Send-to-sky placement is unchanged from the handler's own.
+ */
+public class PredictiveEngine extends VoidEngine {
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.VoidEngine#getName()
+     */
+    @Override
+    public String getName() {
+        return "predictive";
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.VoidEngine#detects(nu.nerd.trampoline.HandleSendTo,
+     *      org.bukkit.entity.Player)
+     */
+    @Override
+    public boolean detects(HandleSendTo handler, Player player) {
+        double y = player.getLocation().getY();
+        Double lastY = _lastY.put(player.getUniqueId(), y);
+        double predictedY = (lastY != null) ? y + (y - lastY) : y;
+        return Math.min(y, predictedY) <= handler.getTeleportY();
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.VoidEngine#place(nu.nerd.trampoline.HandleSendTo,
+     *      org.bukkit.Location, org.bukkit.entity.Player,
+     *      java.util.logging.Logger)
+     */
+    @Override
+    public Location place(HandleSendTo handler, Location loc, Player player, Logger logger) {
+        if (!(handler instanceof HandleSendToSurface)) {
+            return handler.findDestination(loc, player, logger);
+        }
+
+        HandleSendToSurface surface = (HandleSendToSurface) handler;
+        int rings = surface._safeScanEnabled ? surface._safeScanTries : 0;
+        for (int ring = 0; ring <= rings; ++ring) {
+            int distance = ring * surface._safeScanStep;
+            for (int i = 0; i < (ring == 0 ? 1 : 8); ++i) {
+                Location column = loc.clone().add(distance * DX[i], 0, distance * DZ[i]);
+                if (!column.getWorld().isChunkLoaded(column.getBlockX() >> 4, column.getBlockZ() >> 4)) {
+                    ++_skippedColumns;
+                    continue;
+                }
+                Location safe = standableAtop(column);
+                if (safe != null) {
+                    while (safe.getBlock().getType() == Material.WATER) {
+                        safe.add(0, 1, 0);
+                    }
+                    return Util.centredXZ(safe);
+                }
+            }
+        }
+        return Util.centredXZ(surface.failSafeLocation(loc.getWorld()));
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.VoidEngine#forget(org.bukkit.entity.Player)
+     */
+    @Override
+    public void forget(Player player) {
+        _lastY.remove(player.getUniqueId());
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the location of the feet of a player standing on the highest
+     * unpassable block of a column, if that is safe.
+     * 
+     * @param column a location in the column.
+     * @return the location, or null if there is nothing to stand on or the
+     *         feet would be in lava.
+     */
+    protected static Location standableAtop(Location column) {
+        Block ground = Util.highestUnpassableBlock(column);
+        if (ground.getType() == Material.VOID_AIR) {
+            return null;
+        }
+        Material feet = ground.getRelative(0, 1, 0).getType();
+        return (feet != Material.VOID_AIR && feet != Material.LAVA) ? Util.atop(ground) : null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * X offsets of the 8 compass points, orthogonal directions first.
+     */
+    protected static final int[] DX = { 0, 1, 0, -1, 1, 1, -1, -1 };
+
+    /**
+     * Z offsets of the 8 compass points, corresponding to DX.
+     */
+    protected static final int[] DZ = { -1, 0, 1, 0, -1, 1, 1, -1 };
+
+    /**
+     * Map from player UUID to Y coordinate at the previous check.
+     */
+    protected Map<UUID, Double> _lastY = new HashMap<>();
+} // class PredictiveEngine
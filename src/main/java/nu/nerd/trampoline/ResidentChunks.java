@@ -0,0 +1,303 @@
+package nu.nerd.trampoline;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+// ----------------------------------------------------------------------------
+/**
+ * Keeps a bounded set of landing chunks loaded, so that teleports to them
+ * don't have to load the chunk from disk again.
+ * 
+ * The set always includes the chunks around each world's fail-safe location
+ * (pinned). The remainder of the chunk budget holds sky landing chunks that
+ * have been landed in repeatedly, with the least recently used evicted first.
+ * Landings are counted in a {@link HotspotTracker} so that the frequency
+ * tracking used for admission is also bounded.
+ * 
+ * Chunks are kept loaded with plugin chunk tickets where the server supports
+ * them (World.addPluginChunkTicket(), looked up reflectively). Otherwise,
+ * chunks are force-loaded, and chunks that were already force-loaded by
+ * someone else are left that way when released.
+ */
+public class ResidentChunks {
+    // ------------------------------------------------------------------------
+    /**
+     * Configure the resident chunks, releasing all currently resident chunks
+     * and pinning the fail-safe areas of the destination worlds.
+     * 
+     * @param budget the maximum number of resident chunks; 0 to disable.
+     * @param failSafeRadius the radius, in chunks, of the square of chunks
+     *        pinned around each fail-safe location.
+     * @param admitLandings the number of landings in a chunk before it is
+     *        made resident.
+     * @param logger used to log warnings.
+     */
+    public void configure(int budget, int failSafeRadius, int admitLandings, Logger logger) {
+        releaseAll();
+        _budget = budget;
+        _admitLandings = Math.max(1, admitLandings);
+        _landingCounts = new HotspotTracker();
+        _landingCounts.setCapacity(Math.max(1, 4 * budget));
+        _hits = _misses = _evictions = 0;
+        if (_budget <= 0) {
+            return;
+        }
+
+        if (_addTicket == null) {
+            _addTicket = findTicketMethod("addPluginChunkTicket");
+            _removeTicket = findTicketMethod("removePluginChunkTicket");
+            if (_addTicket == null || _removeTicket == null) {
+                _addTicket = _removeTicket = null;
+            }
+        }
+
+        for (Map.Entry<String, DestinationWorld> entry : Trampoline.CONFIG.DESTINATION_WORLDS.entrySet()) {
+            Location failSafe = entry.getValue().getFailSafeLocation();
+            int centreX = failSafe.getBlockX() >> 4;
+            int centreZ = failSafe.getBlockZ() >> 4;
+            for (int x = centreX - failSafeRadius; x <= centreX + failSafeRadius; ++x) {
+                for (int z = centreZ - failSafeRadius; z <= centreZ + failSafeRadius; ++z) {
+                    if (size() >= _budget) {
+                        logger.warning("The resident chunk budget is too small to hold all fail-safe areas.");
+                        return;
+                    }
+                    ChunkLocation chunk = new ChunkLocation(entry.getKey(), x, z);
+                    if (!_pinned.containsKey(chunk) && acquire(chunk)) {
+                        _pinned.put(chunk, _forcedByOthers.remove(chunk) != null);
+                    }
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the number of resident chunks.
+     * 
+     * @return the number of resident chunks.
+     */
+    public int size() {
+        return _pinned.size() + _landings.size();
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Record a teleport to the specified location, counting whether its chunk
+     * was resident.
+     * 
+     * Only chunks that are already loaded are admitted, so that admission
+     * never loads or generates a chunk on the main thread; record sky
+     * landings after the teleport has completed.
+     * 
+     * @param loc the destination.
+     * @param admit if true, the chunk is a candidate to be made resident.
+     */
+    public void recordLanding(Location loc, boolean admit) {
+        if (_budget <= 0) {
+            return;
+        }
+
+        ChunkLocation chunk = ChunkLocation.of(loc);
+        if (_pinned.containsKey(chunk) || _landings.get(chunk) != null) {
+            ++_hits;
+            return;
+        }
+
+        ++_misses;
+        // Admit on the guaranteed count. Once the table is full of uniformly
+        // spread landings, every new chunk's estimate would reach 2.
+        if (admit && _landingCounts.record(loc) >= _admitLandings &&
+            loc.getWorld().isChunkLoaded(chunk.getX(), chunk.getZ())) {
+            if (size() >= _budget) {
+                Iterator<Map.Entry<ChunkLocation, Boolean>> eldest = _landings.entrySet().iterator();
+                if (!eldest.hasNext()) {
+                    return;
+                }
+                Map.Entry<ChunkLocation, Boolean> entry = eldest.next();
+                eldest.remove();
+                release(entry.getKey(), entry.getValue());
+                ++_evictions;
+            }
+            if (acquire(chunk)) {
+                _landings.put(chunk, _forcedByOthers.remove(chunk) != null);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Release all resident chunks.
+     */
+    public void releaseAll() {
+        for (Map.Entry<ChunkLocation, Boolean> entry : _pinned.entrySet()) {
+            release(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<ChunkLocation, Boolean> entry : _landings.entrySet()) {
+            release(entry.getKey(), entry.getValue());
+        }
+        _pinned.clear();
+        _landings.clear();
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable report of the resident chunks, one line per
+     * element.
+     * 
+     * @return the report.
+     */
+    public List<String> getReport() {
+        List<String> report = new ArrayList<>();
+        if (_budget <= 0) {
+            report.add("Resident chunks are disabled.");
+            return report;
+        }
+        report.add("Resident chunks: " + size() + " of " + _budget + " (" + _pinned.size() + " fail-safe, " +
+                   _landings.size() + " landing), using " + (_addTicket != null ? "plugin tickets" : "force loading") + ".");
+        long total = _hits + _misses;
+        report.add(String.format("Landings: %d hits, %d misses (%.1f%% hit rate), %d evictions.",
+                                 _hits, _misses, total == 0 ? 0.0 : 100.0 * _hits / total, _evictions));
+        return report;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Keep the specified chunk loaded.
+     * 
+     * If the chunk was already force-loaded by someone else, it is recorded in
+     * _forcedByOthers so that it is not unforced on release.
+     * 
+     * @param chunk the chunk.
+     * @return true if the chunk is now kept loaded.
+     */
+    protected boolean acquire(ChunkLocation chunk) {
+        World world = Bukkit.getWorld(chunk.getWorldName());
+        if (world == null) {
+            return false;
+        }
+        if (_addTicket != null) {
+            try {
+                return Boolean.TRUE.equals(_addTicket.invoke(world, chunk.getX(), chunk.getZ(), Trampoline.PLUGIN));
+            } catch (Exception ex) {
+                Trampoline.PLUGIN.getLogger().warning("Unable to add chunk ticket: " + ex);
+                return false;
+            }
+        }
+        if (world.isChunkForceLoaded(chunk.getX(), chunk.getZ())) {
+            _forcedByOthers.put(chunk, Boolean.TRUE);
+        } else {
+            world.setChunkForceLoaded(chunk.getX(), chunk.getZ(), true);
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Stop keeping the specified chunk loaded.
+     * 
+     * @param chunk the chunk.
+     * @param forcedByOthers true if the chunk was force-loaded by someone else
+     *        when it was acquired.
+     */
+    protected void release(ChunkLocation chunk, boolean forcedByOthers) {
+        World world = Bukkit.getWorld(chunk.getWorldName());
+        if (world == null) {
+            return;
+        }
+        if (_removeTicket != null) {
+            try {
+                _removeTicket.invoke(world, chunk.getX(), chunk.getZ(), Trampoline.PLUGIN);
+            } catch (Exception ex) {
+                Trampoline.PLUGIN.getLogger().warning("Unable to remove chunk ticket: " + ex);
+            }
+        } else if (!forcedByOthers) {
+            world.setChunkForceLoaded(chunk.getX(), chunk.getZ(), false);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the specified World method taking chunk coordinates and a plugin,
+     * if the server provides it.
+     * 
+     * @param name the method name.
+     * @return the method, or null if not found.
+     */
+    protected static Method findTicketMethod(String name) {
+        try {
+            return World.class.getMethod(name, int.class, int.class, Plugin.class);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Maximum number of resident chunks; 0 if disabled.
+     */
+    protected int _budget;
+
+    /**
+     * Number of landings in a chunk before it is made resident.
+     */
+    protected int _admitLandings;
+
+    /**
+     * Bounded counts of landings by chunk, for admission.
+     */
+    protected HotspotTracker _landingCounts = new HotspotTracker();
+
+    /**
+     * Pinned fail-safe chunks, mapped to true if they were force-loaded by
+     * someone else when acquired.
+     */
+    protected Map<ChunkLocation, Boolean> _pinned = new HashMap<>();
+
+    /**
+     * Resident landing chunks in least recently used order, mapped to true if
+     * they were force-loaded by someone else when acquired.
+     */
+    protected LinkedHashMap<ChunkLocation, Boolean> _landings = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Chunks found to be already force-loaded by someone else during acquire().
+     */
+    protected Map<ChunkLocation, Boolean> _forcedByOthers = new HashMap<>();
+
+    /**
+     * Number of landings in resident chunks.
+     */
+    protected long _hits;
+
+    /**
+     * Number of landings in non-resident chunks.
+     */
+    protected long _misses;
+
+    /**
+     * Number of landing chunks evicted to stay within the budget.
+     */
+    protected long _evictions;
+
+    /**
+     * World.addPluginChunkTicket(int, int, Plugin), or null if not available.
+     */
+    protected Method _addTicket;
+
+    /**
+     * World.removePluginChunkTicket(int, int, Plugin), or null if not
+     * available.
+     */
+    protected Method _removeTicket;
+} // class ResidentChunks
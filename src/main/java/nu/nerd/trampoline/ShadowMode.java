@@ -0,0 +1,364 @@
+package nu.nerd.trampoline;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+// ----------------------------------------------------------------------------
+/**
+ * Runs an alternative {@link VoidEngine} alongside the authoritative handlers,
+ * on the same inputs, without acting on its decisions.
+ * 
+ * The handlers remain authoritative. Shadow mode records how often the two
+ * disagree about whether a player has fallen, how far apart their chosen
+ * destinations are, and how long each takes, so that a new engine can be
+ * validated under real load before it is enabled.
+ */
+public class ShadowMode {
+    // ------------------------------------------------------------------------
+    /**
+     * Accumulates the count, total and maximum of a series of durations.
+     */
+    public static class Timing {
+        // --------------------------------------------------------------------
+        /**
+         * Record a duration.
+         * 
+         * @param nanos the duration in nanoseconds.
+         */
+        public void add(long nanos) {
+            ++_count;
+            _totalNanos += nanos;
+            _maxNanos = Math.max(_maxNanos, nanos);
+        }
+
+        // --------------------------------------------------------------------
+        /**
+         * Return a human-readable summary of the durations.
+         * 
+         * @return the summary.
+         */
+        public String getDescription() {
+            double meanMillis = (_count == 0) ? 0 : _totalNanos / 1e6 / _count;
+            return String.format("%d ops, mean %.3f ms, max %.3f ms", _count, meanMillis, _maxNanos / 1e6);
+        }
+
+        // --------------------------------------------------------------------
+        /**
+         * Number of durations recorded.
+         */
+        protected long _count;
+
+        /**
+         * Total of all durations in nanoseconds.
+         */
+        protected long _totalNanos;
+
+        /**
+         * Longest duration in nanoseconds.
+         */
+        protected long _maxNanos;
+    } // class Timing
+
+    // ------------------------------------------------------------------------
+    /**
+     * Configure shadow mode, discarding all statistics.
+     * 
+     * @param enabled true if shadow mode is enabled.
+     * @param engineName the name of the shadow engine.
+     * @param logDistance destinations further apart than this many blocks (or
+     *        in different worlds) are logged; negative to disable logging.
+     * @param logger used to log errors.
+     */
+    public void configure(boolean enabled, String engineName, double logDistance, Logger logger) {
+        _engine = null;
+        if (enabled) {
+            _engine = VoidEngine.create(engineName);
+            if (_engine == null) {
+                logger.severe("Unknown shadow engine \"" + engineName + "\"; shadow mode is disabled.");
+            }
+        }
+        _legacy = new LegacyEngine();
+        _logDistance = logDistance;
+        reset();
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if shadow mode is enabled.
+     * 
+     * @return true if shadow mode is enabled.
+     */
+    public boolean isEnabled() {
+        return _engine != null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Discard all statistics.
+     */
+    public void reset() {
+        _checks = _agreedDetections = _legacyOnlyDetections = _shadowOnlyDetections = _earlyDetections = 0;
+        _placements = _sameWorldPlacements = _shadowNullPlacements = 0;
+        _totalSeparation = _totalLegacyDistance = _totalShadowDistance = 0;
+        _sameWorldAsFall = 0;
+        _legacyDetectTiming = new Timing();
+        _shadowDetectTiming = new Timing();
+        _legacyPlaceTiming = new Timing();
+        _shadowPlaceTiming = new Timing();
+        _shadowAhead.clear();
+        if (_engine != null) {
+            _engine.resetStatistics();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Compare the detection decisions of the legacy and shadow engines for a
+     * player, before the authoritative handler processes them.
+     * 
+     * @param handler the handler of the player's current world.
+     * @param player the player.
+     */
+    public void compareDetection(HandleSendTo handler, Player player) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean legacy = _legacy.detects(handler, player);
+        long middle = System.nanoTime();
+        boolean shadow = _engine.detects(handler, player);
+        long end = System.nanoTime();
+        _legacyDetectTiming.add(middle - start);
+        _shadowDetectTiming.add(end - middle);
+
+        ++_checks;
+        UUID uuid = player.getUniqueId();
+        if (legacy && shadow) {
+            ++_agreedDetections;
+        } else if (legacy) {
+            ++_legacyOnlyDetections;
+        } else if (shadow) {
+            ++_shadowOnlyDetections;
+        }
+
+        if (legacy) {
+            if (_shadowAhead.remove(uuid)) {
+                ++_earlyDetections;
+            }
+        } else if (shadow) {
+            _shadowAhead.add(uuid);
+        } else {
+            _shadowAhead.remove(uuid);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Compare the destination chosen by an authoritative handler with that
+     * chosen by the shadow engine for the same fall.
+     * 
+     * @param handler the handler.
+     * @param loc the location of the fall.
+     * @param player the player who fell, or null if the fall was not by a
+     *        player.
+     * @param legacyDestination the destination chosen by the handler.
+     * @param legacyNanos the time taken by the handler to choose.
+     * @param logger used to log significant differences.
+     */
+    public void comparePlacement(HandleSendTo handler, Location loc, Player player, Location legacyDestination,
+                                 long legacyNanos, Logger logger) {
+        if (!isEnabled() || legacyDestination == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Location shadowDestination = _engine.place(handler, loc.clone(), player, logger);
+        _shadowPlaceTiming.add(System.nanoTime() - start);
+        _legacyPlaceTiming.add(legacyNanos);
+
+        ++_placements;
+        if (shadowDestination == null) {
+            ++_shadowNullPlacements;
+            return;
+        }
+
+        boolean sameWorld = (shadowDestination.getWorld() == legacyDestination.getWorld());
+        double separation = sameWorld ? shadowDestination.distance(legacyDestination) : Double.POSITIVE_INFINITY;
+        if (sameWorld) {
+            ++_sameWorldPlacements;
+            _totalSeparation += separation;
+        }
+        if (sameWorld && legacyDestination.getWorld() == loc.getWorld()) {
+            ++_sameWorldAsFall;
+            _totalLegacyDistance += legacyDestination.distance(loc);
+            _totalShadowDistance += shadowDestination.distance(loc);
+        }
+
+        // Sky destinations are chosen at random by both engines, so their
+        // separation says nothing about the engines.
+        if (_logDistance >= 0 && separation > _logDistance && !(handler instanceof HandleSendToSky)) {
+            logger.info("Shadow: fall at " + Util.formatLocation(loc) + " sent to " +
+                        Util.formatLocation(legacyDestination) + " but " + _engine.getName() +
+                        " engine chose " + Util.formatLocation(shadowDestination) + ".");
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Discard any state kept about the specified player.
+     * 
+     * @param player the player.
+     */
+    public void forget(Player player) {
+        if (isEnabled()) {
+            _engine.forget(player);
+            _shadowAhead.remove(player.getUniqueId());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable report of the comparison, one line per element.
+     * 
+     * @return the report.
+     */
+    public List<String> getReport() {
+        List<String> report = new ArrayList<>();
+        if (!isEnabled()) {
+            report.add("Shadow mode is disabled.");
+            return report;
+        }
+
+        report.add("Shadow engine: " + _engine.getName() + ", " + _checks + " checks.");
+        report.add("Detections: " + _agreedDetections + " agreed, " + _legacyOnlyDetections + " legacy only, " +
+                   _shadowOnlyDetections + " shadow only (" + _earlyDetections + " one check early).");
+        report.add("Placements: " + _placements + ", " + _sameWorldPlacements + " in the same world, " +
+                   _shadowNullPlacements + " with no shadow destination, " +
+                   _engine.getSkippedColumns() + " columns in unloaded chunks not evaluated.");
+        if (_sameWorldPlacements != 0) {
+            report.add(String.format("Mean separation of destinations: %.1f blocks.",
+                                     _totalSeparation / _sameWorldPlacements));
+        }
+        if (_sameWorldAsFall != 0) {
+            report.add(String.format("Mean distance from fall: legacy %.1f, shadow %.1f blocks.",
+                                     _totalLegacyDistance / _sameWorldAsFall,
+                                     _totalShadowDistance / _sameWorldAsFall));
+        }
+        report.add("Legacy detection: " + _legacyDetectTiming.getDescription());
+        report.add("Shadow detection: " + _shadowDetectTiming.getDescription());
+        report.add("Legacy placement: " + _legacyPlaceTiming.getDescription());
+        report.add("Shadow placement: " + _shadowPlaceTiming.getDescription());
+        return report;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * The shadow engine, or null if shadow mode is disabled.
+     */
+    protected VoidEngine _engine;
+
+    /**
+     * The legacy engine, used to time and compare detection.
+     */
+    protected VoidEngine _legacy = new LegacyEngine();
+
+    /**
+     * Destinations further apart than this are logged; negative to disable.
+     */
+    protected double _logDistance;
+
+    /**
+     * Number of player location checks compared.
+     */
+    protected long _checks;
+
+    /**
+     * Number of checks where both engines detected a fall.
+     */
+    protected long _agreedDetections;
+
+    /**
+     * Number of checks where only the legacy engine detected a fall.
+     */
+    protected long _legacyOnlyDetections;
+
+    /**
+     * Number of checks where only the shadow engine detected a fall.
+     */
+    protected long _shadowOnlyDetections;
+
+    /**
+     * Number of legacy detections that the shadow engine made a check earlier.
+     */
+    protected long _earlyDetections;
+
+    /**
+     * UUIDs of players whose fall was detected by the shadow engine but not
+     * (yet) by the legacy engine.
+     */
+    protected Set<UUID> _shadowAhead = new HashSet<>();
+
+    /**
+     * Number of placements compared.
+     */
+    protected long _placements;
+
+    /**
+     * Number of placements where both destinations were in the same world.
+     */
+    protected long _sameWorldPlacements;
+
+    /**
+     * Number of placements where the shadow engine found no destination.
+     */
+    protected long _shadowNullPlacements;
+
+    /**
+     * Number of placements where both destinations were in the world of the
+     * fall.
+     */
+    protected long _sameWorldAsFall;
+
+    /**
+     * Total distance between destinations in the same world.
+     */
+    protected double _totalSeparation;
+
+    /**
+     * Total distance of legacy destinations from the fall, where comparable.
+     */
+    protected double _totalLegacyDistance;
+
+    /**
+     * Total distance of shadow destinations from the fall, where comparable.
+     */
+    protected double _totalShadowDistance;
+
+    /**
+     * Time taken by the legacy engine to detect falls.
+     */
+    protected Timing _legacyDetectTiming = new Timing();
+
+    /**
+     * Time taken by the shadow engine to detect falls.
+     */
+    protected Timing _shadowDetectTiming = new Timing();
+
+    /**
+     * Time taken by the handlers to choose destinations.
+     */
+    protected Timing _legacyPlaceTiming = new Timing();
+
+    /**
+     * Time taken by the shadow engine to choose destinations.
+     */
+    protected Timing _shadowPlaceTiming = new Timing();
+} // class ShadowMode
@@ -0,0 +1,390 @@
+package nu.nerd.trampoline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+import org.bukkit.configuration.ConfigurationSection;
+
+// ----------------------------------------------------------------------------
+/**
+ * One of the weighted destinations that a send-to-sky handler can route a
+ * falling player or entity to.
+ *
+ * A destination is a world and Y coordinate, optionally restricted to a
+ * circular sub-region of that world. The destination also tracks a decaying
+ * count of recent landings so that the {@link DestinationRouter} can spread
+ * arrivals out.
+ */
+public class SkyDestination {
+    // ------------------------------------------------------------------------
+    /**
+     * Load this destination from the specified section.
+     *
+     * @param section the configuration section.
+     * @param logger used to log errors.
+     * @return true if the destination was loaded successfully.
+     */
+    public boolean load(ConfigurationSection section, Logger logger) {
+        _worldName = section.getString("world");
+        if (_worldName == null) {
+            logger.severe("Sky destination has an unspecified world.");
+        }
+        _y = section.getInt("y");
+        if (_y <= 0) {
+            logger.severe("Sky destination in " + _worldName + " has invalid Y coordinate, " + _y + ".");
+        }
+        if (section.contains("weight") && !(section.get("weight") instanceof Number)) {
+            logger.severe("Sky destination in " + _worldName + " has a weight that is not a number.");
+            return false;
+        }
+        _weight = section.getDouble("weight", 1.0);
+        if (_weight <= 0) {
+            logger.severe("Sky destination in " + _worldName + " has invalid weight, " + _weight + ".");
+        }
+
+        if (section.contains("region") && !section.isConfigurationSection("region")) {
+            logger.severe("Sky destination in " + _worldName + " has a region that is not a section.");
+            return false;
+        }
+        ConfigurationSection region = section.getConfigurationSection("region");
+        _hasRegion = (region != null);
+        if (_hasRegion) {
+            _regionX = region.getInt("x");
+            _regionZ = region.getInt("z");
+            _regionRadius = region.getInt("radius");
+            if (_regionRadius <= 0) {
+                logger.severe("Sky destination in " + _worldName + " has invalid region radius, " +
+                              _regionRadius + ".");
+                return false;
+            }
+        }
+        return _worldName != null && _y > 0 && _weight > 0;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable description of this destination.
+     *
+     * @return a human-readable description of this destination.
+     */
+    public String getDescription() {
+        String region = _hasRegion ? " within " + _regionRadius + " blocks of (" + _regionX + "," + _regionZ + ")"
+                                   : "";
+        return _worldName + " Y" + _y + region + " weight " + _weight;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the name of the destination world.
+     *
+     * @return the name of the destination world.
+     */
+    public String getWorldName() {
+        return _worldName;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the destination world, or null if it is not loaded.
+     *
+     * @return the destination world, or null if it is not loaded.
+     */
+    public World getWorld() {
+        return Bukkit.getWorld(_worldName);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the Y coordinate that players and entities arrive at.
+     *
+     * @return the Y coordinate that players and entities arrive at.
+     */
+    public int getY() {
+        return _y;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the configured relative weight of this destination.
+     *
+     * @return the configured relative weight of this destination.
+     */
+    public double getWeight() {
+        return _weight;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Compute the rectangular bounds, in block coordinates, that landing
+     * points may be selected from.
+     *
+     * The bounds are the world border, backed off by the configured buffer,
+     * intersected with the bounding square of the sub-region, if any.
+     *
+     * @param world the destination world.
+     * @return the bounds as {minX, minZ, maxX, maxZ} (all inclusive), or null
+     *         if the sub-region lies entirely outside the world border.
+     */
+    public int[] getBounds(World world) {
+        WorldBorder border = world.getWorldBorder();
+        int radius = (int) border.getSize() / 2 - Trampoline.CONFIG.WORLD_BORDER_BUFFER;
+        Location centre = border.getCenter();
+        int minX = centre.getBlockX() - radius;
+        int maxX = centre.getBlockX() + radius;
+        int minZ = centre.getBlockZ() - radius;
+        int maxZ = centre.getBlockZ() + radius;
+        if (_hasRegion) {
+            minX = Math.max(minX, _regionX - _regionRadius);
+            maxX = Math.min(maxX, _regionX + _regionRadius);
+            minZ = Math.max(minZ, _regionZ - _regionRadius);
+            maxZ = Math.min(maxZ, _regionZ + _regionRadius);
+        }
+        return (minX <= maxX && minZ <= maxZ) ? new int[] { minX, minZ, maxX, maxZ } : null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if the specified block X and Z are within the sub-region of
+     * this destination, or if there is no sub-region.
+     *
+     * @param x the block X coordinate.
+     * @param z the block Z coordinate.
+     * @return true if (x,z) is an allowed landing column.
+     */
+    public boolean regionContains(int x, int z) {
+        if (!_hasRegion) {
+            return true;
+        }
+        double dx = x - _regionX;
+        double dz = z - _regionZ;
+        return Math.sqrt(dx * dx + dz * dz) <= _regionRadius;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Select a random landing location at this destination.
+     *
+     * The method has a few tries at honouring both the sub-region and the
+     * exclusion zones of the destination world, but doesn't care too much if
+     * it can't.
+     *
+     * @param world the destination world.
+     * @param destinationWorld the destination world's entry settings.
+     * @param bounds the landing bounds returned by {@link #getBounds(World)}.
+     * @param generated if not null, landing points are restricted to chunks
+     *        in this index of generated chunks, if there are any in bounds.
+     * @return the landing location.
+     */
+    public Location sample(World world, DestinationWorld destinationWorld, int[] bounds,
+                           GeneratedChunkIndex generated) {
+        Location destination = null;
+        for (int i = 0; i < 10; ++i) {
+            int x, z;
+            int[] chunk = (generated != null) ? generated.sampleChunk(bounds[0] >> 4, bounds[1] >> 4,
+                                                                      bounds[2] >> 4, bounds[3] >> 4)
+                                              : null;
+            if (chunk != null) {
+                x = Util.randomInt(Math.max(bounds[0], chunk[0] << 4), Math.min(bounds[2], (chunk[0] << 4) + 15));
+                z = Util.randomInt(Math.max(bounds[1], chunk[1] << 4), Math.min(bounds[3], (chunk[1] << 4) + 15));
+            } else {
+                x = Util.randomInt(bounds[0], bounds[2]);
+                z = Util.randomInt(bounds[1], bounds[3]);
+            }
+            destination = Util.centredXZ(new Location(world, x, _y, z));
+            if (regionContains(x, z) && destinationWorld.allowsTeleportTo(destination)) {
+                break;
+            }
+        }
+        return destination;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Select a random landing location in a chunk that is currently loaded, or
+     * that is in or next to the chunk of a recent landing at this destination.
+     *
+     * @param world the destination world.
+     * @param destinationWorld the destination world's entry settings.
+     * @param bounds the landing bounds returned by {@link #getBounds(World)}.
+     * @param generated if not null, chunks next to recent landings are only
+     *        candidates if they are in this index of generated chunks.
+     * @return the landing location, or null if no warm location satisfying the
+     *         sub-region and exclusion zones was found.
+     */
+    public Location sampleWarm(World world, DestinationWorld destinationWorld, int[] bounds,
+                               GeneratedChunkIndex generated) {
+        int minCX = bounds[0] >> 4;
+        int minCZ = bounds[1] >> 4;
+        int maxCX = bounds[2] >> 4;
+        int maxCZ = bounds[3] >> 4;
+
+        List<Long> candidates = new ArrayList<>();
+        for (Chunk chunk : world.getLoadedChunks()) {
+            if (chunk.getX() >= minCX && chunk.getX() <= maxCX &&
+                chunk.getZ() >= minCZ && chunk.getZ() <= maxCZ) {
+                candidates.add(Util.chunkKey(chunk.getX(), chunk.getZ()));
+            }
+        }
+        for (int i = 0; i < _recentLandingCount; ++i) {
+            int landingX = Util.chunkKeyX(_recentLandingChunks[i]);
+            int landingZ = Util.chunkKeyZ(_recentLandingChunks[i]);
+            for (int cx = Math.max(minCX, landingX - 1); cx <= Math.min(maxCX, landingX + 1); ++cx) {
+                for (int cz = Math.max(minCZ, landingZ - 1); cz <= Math.min(maxCZ, landingZ + 1); ++cz) {
+                    if (generated == null || generated.isGenerated(cx, cz)) {
+                        candidates.add(Util.chunkKey(cx, cz));
+                    }
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        for (int i = 0; i < 10; ++i) {
+            long chunk = candidates.get(Util.randomInt(candidates.size()));
+            int chunkX = Util.chunkKeyX(chunk);
+            int chunkZ = Util.chunkKeyZ(chunk);
+            int x = Util.randomInt(Math.max(bounds[0], chunkX << 4), Math.min(bounds[2], (chunkX << 4) + 15));
+            int z = Util.randomInt(Math.max(bounds[1], chunkZ << 4), Math.min(bounds[3], (chunkZ << 4) + 15));
+            Location destination = Util.centredXZ(new Location(world, x, _y, z));
+            if (regionContains(x, z) && destinationWorld.allowsTeleportTo(destination)) {
+                return destination;
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the fraction of chunks within the landing bounds that are
+     * currently loaded.
+     *
+     * @param world the destination world.
+     * @param bounds the landing bounds returned by {@link #getBounds(World)}.
+     * @return the loaded fraction in the range [0, 1].
+     */
+    public double getLoadedFraction(World world, int[] bounds) {
+        int minCX = bounds[0] >> 4;
+        int minCZ = bounds[1] >> 4;
+        int maxCX = bounds[2] >> 4;
+        int maxCZ = bounds[3] >> 4;
+        long areaChunks = (long) (maxCX - minCX + 1) * (maxCZ - minCZ + 1);
+
+        // Probe whichever is smaller: the area or the set of loaded chunks.
+        Chunk[] loadedChunks = world.getLoadedChunks();
+        int loaded = 0;
+        if (areaChunks <= loadedChunks.length) {
+            for (int cx = minCX; cx <= maxCX; ++cx) {
+                for (int cz = minCZ; cz <= maxCZ; ++cz) {
+                    if (world.isChunkLoaded(cx, cz)) {
+                        ++loaded;
+                    }
+                }
+            }
+        } else {
+            for (Chunk chunk : loadedChunks) {
+                if (chunk.getX() >= minCX && chunk.getX() <= maxCX &&
+                    chunk.getZ() >= minCZ && chunk.getZ() <= maxCZ) {
+                    ++loaded;
+                }
+            }
+        }
+        return (double) loaded / areaChunks;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the number of recent landings at this destination, decayed
+     * exponentially with the specified half life.
+     *
+     * @param now the current time in milliseconds since the epoch.
+     * @param halfLifeMillis the half life of a landing, in milliseconds.
+     * @return the decayed landing count.
+     */
+    public double getRecentLandings(long now, long halfLifeMillis) {
+        if (halfLifeMillis <= 0) {
+            return 0;
+        }
+        return _recentLandings * Math.pow(0.5, (double) (now - _lastLandingTime) / halfLifeMillis);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Record a landing at this destination.
+     *
+     * @param now the current time in milliseconds since the epoch.
+     * @param halfLifeMillis the half life of a landing, in milliseconds.
+     * @param loc the landing location.
+     */
+    public void recordLanding(long now, long halfLifeMillis, Location loc) {
+        _recentLandings = getRecentLandings(now, halfLifeMillis) + 1;
+        _lastLandingTime = now;
+
+        _recentLandingChunks[_nextRecentLanding] = Util.chunkKey(loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+        _nextRecentLanding = (_nextRecentLanding + 1) % _recentLandingChunks.length;
+        _recentLandingCount = Math.min(_recentLandingCount + 1, _recentLandingChunks.length);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Name of the destination world.
+     */
+    protected String _worldName;
+
+    /**
+     * Y coordinate that players and entities arrive at.
+     */
+    protected int _y;
+
+    /**
+     * Relative weight of this destination.
+     */
+    protected double _weight;
+
+    /**
+     * True if landings are restricted to a circular sub-region.
+     */
+    protected boolean _hasRegion;
+
+    /**
+     * Centre X and Z of the sub-region.
+     */
+    protected int _regionX, _regionZ;
+
+    /**
+     * Radius of the sub-region in blocks.
+     */
+    protected int _regionRadius;
+
+    /**
+     * Decayed count of recent landings, as of _lastLandingTime.
+     */
+    protected double _recentLandings;
+
+    /**
+     * Time of the most recent landing in milliseconds since the epoch.
+     */
+    protected long _lastLandingTime;
+
+    /**
+     * Ring buffer of the chunk keys (see {@link Util#chunkKey(int, int)}) of
+     * the most recent landings.
+     */
+    protected long[] _recentLandingChunks = new long[16];
+
+    /**
+     * Index in _recentLandingChunks where the next landing will be recorded.
+     */
+    protected int _nextRecentLanding;
+
+    /**
+     * Number of valid entries in _recentLandingChunks.
+     */
+    protected int _recentLandingCount;
+} // class SkyDestination
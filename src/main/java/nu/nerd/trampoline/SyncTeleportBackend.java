@@ -0,0 +1,32 @@
+package nu.nerd.trampoline;
+
+import java.util.function.Consumer;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+// ----------------------------------------------------------------------------
+/**
+ * Teleports entities with the blocking Bukkit API, loading or generating the
+ * destination chunk on the main thread if necessary.
+ */
+public class SyncTeleportBackend extends TeleportBackend {
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.TeleportBackend#getDescription()
+     */
+    @Override
+    public String getDescription() {
+        return "synchronous teleport";
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * @see nu.nerd.trampoline.TeleportBackend#startTeleport(org.bukkit.entity.Entity,
+     *      org.bukkit.Location, java.util.function.Consumer)
+     */
+    @Override
+    protected void startTeleport(Entity entity, Location destination, Consumer<Boolean> completion) {
+        completion.accept(entity.teleport(destination));
+    }
+} // class SyncTeleportBackend
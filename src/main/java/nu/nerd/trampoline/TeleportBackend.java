@@ -0,0 +1,118 @@
+package nu.nerd.trampoline;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+// ----------------------------------------------------------------------------
+/**
+ * The base of classes that perform teleports on behalf of the handlers.
+ *
+ * Completion callbacks are always run on the main server thread. While a
+ * teleport is in progress, the entity is reported as pending so that handlers
+ * don't teleport it a second time.
+ */
+public abstract class TeleportBackend {
+    // ------------------------------------------------------------------------
+    /**
+     * Create the most capable teleport backend supported by the server.
+     *
+     * The set of pending entities is shared with the previous backend, if any,
+     * so that teleports still in flight when the configuration is reloaded are
+     * not started a second time.
+     *
+     * @param allowAsync if true, non-blocking chunk loading and teleportation
+     *        are used when the server provides them.
+     * @param previous the backend being replaced, or null.
+     * @param logger used to log the selected backend.
+     * @return the backend.
+     */
+    public static TeleportBackend create(boolean allowAsync, TeleportBackend previous, Logger logger) {
+        TeleportBackend backend = null;
+        if (allowAsync) {
+            backend = AsyncTeleportBackend.createIfSupported();
+        }
+        if (backend == null) {
+            backend = new SyncTeleportBackend();
+        }
+        if (previous != null) {
+            backend._pending = previous._pending;
+        }
+        logger.info("Teleport backend: " + backend.getDescription());
+        return backend;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return a human-readable description of how teleports are performed.
+     *
+     * @return a human-readable description of how teleports are performed.
+     */
+    public abstract String getDescription();
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if the specified entity has a teleport in progress.
+     *
+     * @param entity the entity.
+     * @return true if the specified entity has a teleport in progress.
+     */
+    public boolean isPending(Entity entity) {
+        return _pending.contains(entity.getUniqueId());
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Teleport an entity.
+     *
+     * @param entity the entity.
+     * @param destination the destination location.
+     * @param callback called on the main thread with true if the teleport
+     *        succeeded, or false if it failed.
+     */
+    public void teleport(Entity entity, Location destination, Consumer<Boolean> callback) {
+        UUID uuid = entity.getUniqueId();
+        _pending.add(uuid);
+        startTeleport(entity, destination, success -> {
+            _pending.remove(uuid);
+            callback.accept(success);
+        });
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Begin the teleport of an entity.
+     *
+     * @param entity the entity.
+     * @param destination the destination location.
+     * @param completion must be called exactly once, on the main thread, with
+     *        the success of the teleport.
+     */
+    protected abstract void startTeleport(Entity entity, Location destination, Consumer<Boolean> completion);
+
+    // ------------------------------------------------------------------------
+    /**
+     * Run a task on the main thread, immediately if already on it.
+     *
+     * @param task the task.
+     */
+    protected static void onMainThread(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            Bukkit.getScheduler().runTask(Trampoline.PLUGIN, task);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * UUIDs of entities with a teleport in progress.
+     */
+    protected Set<UUID> _pending = new HashSet<>();
+} // class TeleportBackend
@@ -1,10 +1,22 @@
 package nu.nerd.trampoline;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
 import net.md_5.bungee.api.ChatColor;
 
@@ -23,6 +35,21 @@ public class Trampoline extends JavaPlugin implements Listener {
      */
     public static Configuration CONFIG = new Configuration();
 
+    /**
+     * Counts void falls by chunk, as a singleton.
+     */
+    public static HotspotTracker HOTSPOTS = new HotspotTracker();
+
+    /**
+     * Compares an alternative engine with the handlers, as a singleton.
+     */
+    public static ShadowMode SHADOW = new ShadowMode();
+
+    /**
+     * Keeps fail-safe and popular landing chunks loaded, as a singleton.
+     */
+    public static ResidentChunks RESIDENT = new ResidentChunks();
+
     // ------------------------------------------------------------------------
     /**
      * @see org.bukkit.plugin.java.JavaPlugin#onEnable()
@@ -34,7 +61,7 @@ public class Trampoline extends JavaPlugin implements Listener {
         CONFIG.reload(false);
 
         Bukkit.getPluginManager().registerEvents(this, this);
-        _movementTask.schedule();
+        scheduleTasks();
     }
 
     // ------------------------------------------------------------------------
@@ -44,6 +71,7 @@ public class Trampoline extends JavaPlugin implements Listener {
     @Override
     public void onDisable() {
         Bukkit.getScheduler().cancelTasks(this);
+        RESIDENT.releaseAll();
     }
 
     // ------------------------------------------------------------------------
@@ -60,10 +88,87 @@ public class Trampoline extends JavaPlugin implements Listener {
 
             if (args.length == 1 && args[0].equalsIgnoreCase("reload")) {
                 CONFIG.reload(true);
+                scheduleTasks();
                 sender.sendMessage(ChatColor.DARK_AQUA + getName() + " configuration reloaded.");
                 return true;
             }
 
+            if (args.length == 1 && args[0].equalsIgnoreCase("stats")) {
+                sender.sendMessage(ChatColor.DARK_AQUA + getName() + " statistics:");
+                for (Map.Entry<String, HandleSendTo> entry : CONFIG.SEND_TO_HANDLERS.entrySet()) {
+                    if (entry.getValue() instanceof HandleSendToSky) {
+                        HandleSendToSky sendToSky = (HandleSendToSky) entry.getValue();
+                        sender.sendMessage(ChatColor.GOLD + entry.getKey() + ": " +
+                                           ChatColor.WHITE + sendToSky.getSamplingStats());
+                    }
+                }
+                for (String line : RESIDENT.getReport()) {
+                    sender.sendMessage(ChatColor.WHITE + line);
+                }
+                return true;
+            }
+
+            if ((args.length == 1 || args.length == 2) && args[0].equalsIgnoreCase("hotspots")) {
+                int limit = 10;
+                if (args.length == 2) {
+                    try {
+                        limit = Math.max(1, Integer.parseInt(args[1]));
+                    } catch (NumberFormatException ex) {
+                        sender.sendMessage(ChatColor.RED + "The count must be an integer.");
+                        return true;
+                    }
+                }
+                List<HotspotTracker.Hotspot> hotspots = HOTSPOTS.getTop(limit);
+                sender.sendMessage(ChatColor.DARK_AQUA + "Top " + hotspots.size() + " void fall hotspots of " +
+                                   HOTSPOTS.getTotal() + " falls:");
+                for (HotspotTracker.Hotspot hotspot : hotspots) {
+                    sender.sendMessage(ChatColor.GOLD + hotspot.getChunk().getDescription() + ": " +
+                                       ChatColor.WHITE + hotspot.getCount() +
+                                       (hotspot.getError() != 0 ? " (overestimate up to " + hotspot.getError() + ")" : ""));
+                }
+                return true;
+            }
+
+            if (args.length == 1 && args[0].equalsIgnoreCase("shadow")) {
+                for (String line : SHADOW.getReport()) {
+                    sender.sendMessage(ChatColor.DARK_AQUA + line);
+                }
+                return true;
+            }
+
+            if (args.length == 2 && args[0].equalsIgnoreCase("shadow") && args[1].equalsIgnoreCase("reset")) {
+                SHADOW.reset();
+                sender.sendMessage(ChatColor.DARK_AQUA + "Shadow mode statistics reset.");
+                return true;
+            }
+
+            if (args.length == 3 && args[0].equalsIgnoreCase("bench")) {
+                World world = Bukkit.getWorld(args[1]);
+                HandleSendTo handler = CONFIG.SEND_TO_HANDLERS.get(args[1]);
+                if (world == null || handler == null) {
+                    sender.sendMessage(ChatColor.RED + "There is no handler for a loaded world named " + args[1] + ".");
+                    return true;
+                }
+                int count;
+                try {
+                    count = Integer.parseInt(args[2]);
+                } catch (NumberFormatException ex) {
+                    count = 0;
+                }
+                if (count <= 0 || count > Benchmark.MAX_COUNT) {
+                    sender.sendMessage(ChatColor.RED + "The count must be an integer from 1 to " + Benchmark.MAX_COUNT + ".");
+                    return true;
+                }
+                if (_benchmark != null && !_benchmark.isFinished()) {
+                    sender.sendMessage(ChatColor.RED + "A benchmark is already running.");
+                    return true;
+                }
+                _benchmark = new Benchmark(sender, world, handler, count);
+                _benchmark.start();
+                sender.sendMessage(ChatColor.DARK_AQUA + "Benchmarking " + count + " falls in " + world.getName() + ".");
+                return true;
+            }
+
             sender.sendMessage(ChatColor.RED + "Invalid arguments. Try /trampoline help.");
         }
         return true;
@@ -71,8 +176,117 @@ public class Trampoline extends JavaPlugin implements Listener {
 
     // ------------------------------------------------------------------------
     /**
-     * Bukkit scheduler task for handling player movement.
+     * Schedule the tasks that check player and entity locations in each world
+     * with an enabled handler, according to that handler's polling settings.
+     * 
+     * Tasks for handlers replaced by a configuration reload stop themselves.
+     * The periodic export of void fall hotspots is also (re)scheduled.
+     */
+    protected void scheduleTasks() {
+        if (_hotspotExportTask != null) {
+            _hotspotExportTask.cancel();
+            _hotspotExportTask = null;
+        }
+        if (CONFIG.HOTSPOT_EXPORT_MINUTES > 0) {
+            long period = CONFIG.HOTSPOT_EXPORT_MINUTES * 60L * 20L;
+            File file = new File(getDataFolder(), "hotspots.csv");
+            _hotspotExportTask = Bukkit.getScheduler().runTaskTimer(this, () -> HOTSPOTS.export(file, getLogger()),
+                                                                    period, period);
+        }
+
+        for (Map.Entry<String, HandleSendTo> entry : CONFIG.SEND_TO_HANDLERS.entrySet()) {
+            HandleSendTo handler = entry.getValue();
+            if (handler.isEnabled()) {
+                new MovementTask(entry.getKey(), handler).schedule();
+                if (handler instanceof HandleSendToSky) {
+                    new EntityTask(entry.getKey(), (HandleSendToSky) handler).schedule();
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the index of generated chunks in the specified world, starting
+     * to build it if necessary.
+     * 
+     * @param worldName the name of the world.
+     * @return the index, which may not yet be ready; or null if the world is
+     *         not loaded.
+     */
+    public GeneratedChunkIndex getGeneratedChunkIndex(String worldName) {
+        GeneratedChunkIndex index = _generatedChunkIndexes.get(worldName);
+        if (index == null) {
+            World world = Bukkit.getWorld(worldName);
+            if (world == null) {
+                return null;
+            }
+            index = new GeneratedChunkIndex(worldName);
+            _generatedChunkIndexes.put(worldName, index);
+            index.build(world, getLogger());
+        }
+        return index;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the number of chunks loaded since the plugin was enabled.
+     * 
+     * @return the number of chunks loaded since the plugin was enabled.
+     */
+    public long getChunkLoadCount() {
+        return _chunkLoadCount;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Count chunk loads and keep the indexes of generated chunks up to date.
+     * 
+     * @param event the event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        ++_chunkLoadCount;
+        GeneratedChunkIndex index = _generatedChunkIndexes.get(event.getWorld().getName());
+        if (index != null) {
+            Chunk chunk = event.getChunk();
+            index.markGenerated(chunk.getX(), chunk.getZ());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Discard per-player state when a player leaves.
+     * 
+     * @param event the event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        SHADOW.forget(event.getPlayer());
+        for (HandleSendTo handler : CONFIG.SEND_TO_HANDLERS.values()) {
+            handler.forget(event.getPlayer());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Map from world name to index of generated chunks in that world.
+     */
+    protected Map<String, GeneratedChunkIndex> _generatedChunkIndexes = new HashMap<>();
+
+    /**
+     * Task that periodically exports void fall hotspots, or null if disabled.
+     */
+    protected BukkitTask _hotspotExportTask;
+
+    /**
+     * The most recently started benchmark, or null.
+     */
+    protected Benchmark _benchmark;
+
+    /**
+     * Number of chunks loaded since the plugin was enabled.
      */
-    protected MovementTask _movementTask = new MovementTask();
+    protected long _chunkLoadCount;
 
 } // class Trampoline
\ No newline at end of file
@@ -34,6 +34,16 @@ public class Util {
         return min + _random.nextInt(max - min + 1);
     }
 
+    // ------------------------------------------------------------------------
+    /**
+     * Return a random double in the range [0, 1).
+     * 
+     * @return a random double in the range [0, 1).
+     */
+    public static double randomDouble() {
+        return _random.nextDouble();
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Return the sign of x as +1 for positive x, -1 for negative x, and 0 when
@@ -45,6 +55,40 @@ public class Util {
         return x < 0 ? -1 : (x > 0 ? 1 : 0);
     }
 
+    // ------------------------------------------------------------------------
+    /**
+     * Pack a pair of chunk (or region) coordinates into a single long.
+     * 
+     * @param x the X coordinate.
+     * @param z the Z coordinate.
+     * @return the packed key.
+     */
+    public static long chunkKey(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the X coordinate packed in a key by {@link #chunkKey(int, int)}.
+     * 
+     * @param key the key.
+     * @return the X coordinate.
+     */
+    public static int chunkKeyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the Z coordinate packed in a key by {@link #chunkKey(int, int)}.
+     * 
+     * @param key the key.
+     * @return the Z coordinate.
+     */
+    public static int chunkKeyZ(long key) {
+        return (int) key;
+    }
+
     // ------------------------------------------------------------------------
     /**
      * Return the highest unpassable block at the specified location.
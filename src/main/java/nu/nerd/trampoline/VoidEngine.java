@@ -0,0 +1,103 @@
+package nu.nerd.trampoline;
+
+import java.util.logging.Logger;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+// ----------------------------------------------------------------------------
+/**
+ * The base of classes that decide when a player has fallen into the void and
+ * where they should be sent, without acting on those decisions.
+ * 
+ * Engines are run in shadow mode alongside the authoritative handlers so that
+ * their decisions and costs can be compared; see {@link ShadowMode}.
+ */
+public abstract class VoidEngine {
+    // ------------------------------------------------------------------------
+    /**
+     * Create an engine by name.
+     * 
+     * @param name the engine name (case insensitive).
+     * @return the engine, or null if there is no engine with that name.
+     */
+    public static VoidEngine create(String name) {
+        if (name.equalsIgnoreCase("legacy")) {
+            return new LegacyEngine();
+        } else if (name.equalsIgnoreCase("predictive")) {
+            return new PredictiveEngine();
+        } else {
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the name of this engine.
+     * 
+     * @return the name of this engine.
+     */
+    public abstract String getName();
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return true if the player should be handled as having fallen into the
+     * void in a world with the specified handler.
+     * 
+     * This is called once for each check of the player's location.
+     * 
+     * @param handler the handler of the player's current world.
+     * @param player the player.
+     * @return true if the player has fallen into the void.
+     */
+    public abstract boolean detects(HandleSendTo handler, Player player);
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the location that a player who fell into the void at the
+     * specified location should be sent to.
+     * 
+     * @param handler the handler of the world where the fall occurred.
+     * @param loc the location of the fall.
+     * @param player the player who fell, or null if the fall was not by a
+     *        player.
+     * @param logger used for logging.
+     * @return the destination, or null if there is none.
+     */
+    public abstract Location place(HandleSendTo handler, Location loc, Player player, Logger logger);
+
+    // ------------------------------------------------------------------------
+    /**
+     * Discard any state kept about the specified player.
+     * 
+     * @param player the player.
+     */
+    public void forget(Player player) {
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Return the number of candidate columns that were not evaluated because
+     * their chunk was not loaded.
+     * 
+     * @return the number of columns skipped.
+     */
+    public long getSkippedColumns() {
+        return _skippedColumns;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Discard the statistics kept by this engine.
+     */
+    public void resetStatistics() {
+        _skippedColumns = 0;
+    }
+
+    // ------------------------------------------------------------------------
+    /**
+     * Number of candidate columns that were not evaluated because their chunk
+     * was not loaded. Shadow placement must not load chunks.
+     */
+    protected long _skippedColumns;
+} // class VoidEngine